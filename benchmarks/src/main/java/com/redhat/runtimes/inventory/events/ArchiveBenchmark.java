@@ -0,0 +1,52 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Unpacking of the downloaded egg archives, before any report is decoded. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArchiveBenchmark {
+  // How many JVM reports the synthetic egg archive holds, on top of the real one
+  @Param({"32"})
+  int eggReports;
+
+  // As inventory.egg.look-ahead defaults to
+  private static final int LOOK_AHEAD = 2;
+
+  private byte[] eggArchive;
+  private byte[] syntheticEggArchive;
+
+  @Setup
+  public void setup() {
+    eggArchive = Fixtures.readRaw("egg_upload.tar.gz");
+    syntheticEggArchive = Fixtures.eggArchive(Fixtures.read("jdk8_MWTELE-66.gz"), eggReports);
+  }
+
+  @Benchmark
+  public void forEach(Blackhole bh) {
+    ArchiveReports.forEach(Fixtures.stream(eggArchive), LOOK_AHEAD, bh::consume);
+  }
+
+  @Benchmark
+  public void forEachSynthetic(Blackhole bh) {
+    ArchiveReports.forEach(Fixtures.stream(syntheticEggArchive), LOOK_AHEAD, bh::consume);
+  }
+
+  @Benchmark
+  public void forEachSyntheticInline(Blackhole bh) {
+    ArchiveReports.forEach(Fixtures.stream(syntheticEggArchive), 0, bh::consume);
+  }
+
+  // A retry of the last report walks the whole archive again
+  @Benchmark
+  public byte[] reportAtSynthetic() {
+    return ArchiveReports.reportAt(syntheticEggArchive, eggReports - 1);
+  }
+}
@@ -0,0 +1,23 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so the allocation per op is reported next to the
+ * throughput. Accepts the usual JMH command line options.
+ */
+public final class BenchmarkMain {
+  private BenchmarkMain() {}
+
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    var options = new OptionsBuilder().parent(new CommandLineOptions(args));
+    options.addProfiler(GCProfiler.class);
+    new Runner(options.build()).run();
+  }
+}
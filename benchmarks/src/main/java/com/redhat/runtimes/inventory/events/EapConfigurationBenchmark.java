@@ -0,0 +1,35 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import com.redhat.runtimes.inventory.json.JsonCodecs;
+import com.redhat.runtimes.inventory.models.EapConfiguration;
+import com.redhat.runtimes.inventory.models.EapInstance;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** Reading of the EAP configuration section, with its JSON dumps. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EapConfigurationBenchmark {
+  private byte[] section;
+
+  @Setup
+  public void setup() throws IOException {
+    var eap = JsonCodecs.shared().reader().readTree(Fixtures.read("eap_example1.json.gz"));
+    section =
+        JsonCodecs.shared().writer().writeValueAsBytes(eap.path("eap").path("eap-configuration"));
+  }
+
+  @Benchmark
+  public EapConfiguration readEapConfiguration() throws IOException {
+    try (var p = JsonCodecs.shared().reader().createParser(section)) {
+      p.nextToken();
+      return ReportDecoder.readEapConfiguration(p, new EapInstance());
+    }
+  }
+}
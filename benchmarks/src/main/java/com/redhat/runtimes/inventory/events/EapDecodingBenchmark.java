@@ -0,0 +1,35 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import com.redhat.runtimes.inventory.models.InsightsMessage;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** Decoding of EAP reports, which carry the server configuration on top of the JVM report. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EapDecodingBenchmark {
+  // How many times the jars of the report are multiplied
+  @Param({"1", "4"})
+  int jarScale;
+
+  private ArchiveAnnouncement announce;
+  private byte[] gzipped;
+
+  @Setup
+  public void setup() {
+    announce = new ArchiveAnnouncement();
+    announce.setTimestamp(Instant.now());
+    gzipped = Fixtures.gzip(Fixtures.scaleJars(Fixtures.read("eap_example1.json.gz"), jarScale));
+  }
+
+  @Benchmark
+  public InsightsMessage decodeGzipped() {
+    return ReportDecoder.decodeGzipped(announce, gzipped);
+  }
+}
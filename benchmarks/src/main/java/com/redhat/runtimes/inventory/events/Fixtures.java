@@ -0,0 +1,118 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.redhat.runtimes.inventory.json.JsonCodecs;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+
+/**
+ * Loads the test fixtures of the events module, and scales them up into synthetic payloads that
+ * look like the largest reports we receive.
+ */
+final class Fixtures {
+  private Fixtures() {}
+
+  /** Reads a fixture, gunzipping the ones that are only checked in gzipped. */
+  static byte[] read(String name) {
+    try (var in = open(name)) {
+      if (name.endsWith(".gz") && !name.endsWith(".tar.gz")) {
+        try (var gunzip = new GZIPInputStream(in)) {
+          return gunzip.readAllBytes();
+        }
+      }
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Reads a fixture as it is stored, without gunzipping it. */
+  static byte[] readRaw(String name) {
+    try (var in = open(name)) {
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static InputStream open(String name) {
+    var in = Fixtures.class.getClassLoader().getResourceAsStream(name);
+    if (in == null) {
+      throw new IllegalArgumentException("No fixture named " + name);
+    }
+    return in;
+  }
+
+  /** Multiplies the jars of a report, giving each copy its own name and checksums. */
+  static byte[] scaleJars(byte[] report, int factor) {
+    try {
+      var root = (ObjectNode) JsonCodecs.shared().reader().readTree(report);
+      var jars = (ArrayNode) root.path("jars").path("jars");
+      int count = jars.size();
+      for (int copy = 1; copy < factor; copy++) {
+        for (int i = 0; i < count; i++) {
+          var jar = (ObjectNode) jars.get(i).deepCopy();
+          jar.put("name", jar.path("name").asText() + "-" + copy);
+          if (jar.get("attributes") instanceof ObjectNode attrs) {
+            for (var checksum : new String[] {"sha1Checksum", "sha256Checksum", "sha512Checksum"}) {
+              if (attrs.has(checksum)) {
+                attrs.put(checksum, copy + attrs.get(checksum).asText().substring(1));
+              }
+            }
+          }
+          jars.add(jar);
+        }
+      }
+      return JsonCodecs.shared().writer().writeValueAsBytes(root);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** A command line made of the given one repeated, as EAP servers with many options have. */
+  static String repeatCommandLine(String commandLine, int times) {
+    return String.join(" ", Collections.nCopies(times, commandLine));
+  }
+
+  /** Builds an egg archive holding the given report the given number of times. */
+  static byte[] eggArchive(byte[] report, int reports) {
+    var out = new ByteArrayOutputStream();
+    try (var tar = new TarArchiveOutputStream(new GZIPOutputStream(out))) {
+      for (int i = 0; i < reports; i++) {
+        var entry =
+            new TarArchiveEntry("egg" + ArchiveReports.INSIGHTS_DATA_PATH + "report" + i + ".json");
+        entry.setSize(report.length);
+        tar.putArchiveEntry(entry);
+        tar.write(report);
+        tar.closeArchiveEntry();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return out.toByteArray();
+  }
+
+  /** Gzips a report, as the ingress archives hold it. */
+  static byte[] gzip(byte[] report) {
+    var out = new ByteArrayOutputStream();
+    try (var gzip = new GZIPOutputStream(out)) {
+      gzip.write(report);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return out.toByteArray();
+  }
+
+  static InputStream stream(byte[] bytes) {
+    return new ByteArrayInputStream(bytes);
+  }
+}
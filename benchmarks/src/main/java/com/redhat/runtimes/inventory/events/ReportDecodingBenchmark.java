@@ -0,0 +1,62 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import com.redhat.runtimes.inventory.models.InsightsMessage;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Decoding of plain JVM reports. Ingress reports are gunzipped into the decoder, egg reports come
+ * out of their archive already unpacked. Both are scanned by the prefilter first.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportDecodingBenchmark {
+  @Param({"test17.json", "jdk8_MWTELE-66.gz"})
+  String report;
+
+  // How many times the jars of the report are multiplied
+  @Param({"1", "10"})
+  int jarScale;
+
+  private ArchiveAnnouncement announce;
+  private byte[] json;
+  private byte[] gzipped;
+  private Clock clock;
+
+  @Setup
+  public void setup() {
+    announce = new ArchiveAnnouncement();
+    announce.setTimestamp(Instant.now());
+    json = Fixtures.scaleJars(Fixtures.read(report), jarScale);
+    gzipped = Fixtures.gzip(json);
+    // Keeps the fixtures fresh, so the prefilter has to read up to the report time
+    clock = Clock.fixed(Instant.parse("2023-04-01T00:00:00Z"), Clock.systemUTC().getZone());
+  }
+
+  @Benchmark
+  public InsightsMessage decodeGzipped() {
+    return ReportDecoder.decodeGzipped(announce, gzipped);
+  }
+
+  @Benchmark
+  public InsightsMessage instanceOf() {
+    return Utils.instanceOf(announce, json);
+  }
+
+  @Benchmark
+  public boolean skipGzipped() {
+    return ReportPrefilter.skipGzipped(gzipped, clock, false);
+  }
+
+  @Benchmark
+  public boolean skip() {
+    return ReportPrefilter.skip(json, clock, true);
+  }
+}
@@ -0,0 +1,45 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import com.redhat.runtimes.inventory.json.JsonCodecs;
+import com.redhat.runtimes.inventory.models.InsightsMessage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** Redaction of the -D values in command lines, run twice for every decoded instance. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SanitizeBenchmark {
+  // How many times the jvm.args of the EAP fixture are repeated
+  @Param({"1", "16", "128"})
+  int repeat;
+
+  private String jvmArgs;
+  private String javaCommand;
+
+  @Setup
+  public void setup() throws IOException {
+    var basic =
+        JsonCodecs.shared().reader().readTree(Fixtures.read("eap_example1.json.gz")).path("basic");
+    // The decoder stores the argument list as its string form
+    var args = JsonCodecs.shared().readerFor(List.class).readValue(basic.path("jvm.args"));
+    jvmArgs = Fixtures.repeatCommandLine(String.valueOf(args), repeat);
+    javaCommand = Fixtures.repeatCommandLine(basic.path("java.command").asText(), repeat);
+  }
+
+  @Benchmark
+  public String sanitizeJvmArgs() {
+    return InsightsMessage.sanitizeJavaParameters(jvmArgs);
+  }
+
+  @Benchmark
+  public String sanitizeJavaCommand() {
+    return InsightsMessage.sanitizeJavaParameters(javaCommand);
+  }
+}
@@ -0,0 +1,80 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.json;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of pre-configured Jackson readers and writers, one per target type. Readers and writers
+ * are immutable and thread-safe, and they all share the serializer and deserializer caches of a
+ * single {@link ObjectMapper}, so they should be fetched from here rather than building a new
+ * mapper per call.
+ *
+ * <p>CDI beans can inject the registry (see {@link JsonConfiguration}); static utilities use {@link
+ * #shared()}. Both get the same instance.
+ */
+public final class JsonCodecs {
+  private static final JsonCodecs SHARED = new JsonCodecs(defaultMapper());
+
+  private final ObjectMapper mapper;
+  private final ObjectReader reader;
+  private final ObjectWriter writer;
+  private final ConcurrentMap<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<JavaType, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+  JsonCodecs(ObjectMapper mapper) {
+    this.mapper = mapper;
+    this.reader = mapper.reader();
+    this.writer = mapper.writer();
+  }
+
+  public static JsonCodecs shared() {
+    return SHARED;
+  }
+
+  static ObjectMapper defaultMapper() {
+    var mapper = new ObjectMapper();
+    mapper.registerModule(new JavaTimeModule());
+    return mapper;
+  }
+
+  /** Untyped reader, mostly useful to create parsers that can bind values. */
+  public ObjectReader reader() {
+    return reader;
+  }
+
+  /** Untyped writer, for values whose type is only known at runtime. */
+  public ObjectWriter writer() {
+    return writer;
+  }
+
+  public ObjectReader readerFor(Class<?> type) {
+    return readerFor(mapper.constructType(type));
+  }
+
+  public ObjectReader readerFor(TypeReference<?> type) {
+    return readerFor(mapper.constructType(type));
+  }
+
+  public ObjectWriter writerFor(Class<?> type) {
+    return writerFor(mapper.constructType(type));
+  }
+
+  public ObjectWriter writerFor(TypeReference<?> type) {
+    return writerFor(mapper.constructType(type));
+  }
+
+  private ObjectReader readerFor(JavaType type) {
+    return readers.computeIfAbsent(type, mapper::readerFor);
+  }
+
+  private ObjectWriter writerFor(JavaType type) {
+    return writers.computeIfAbsent(type, mapper::writerFor);
+  }
+}
@@ -0,0 +1,16 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.json;
+
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+
+@Singleton
+public class JsonConfiguration {
+
+  @Produces
+  @Singleton
+  public JsonCodecs jsonCodecs() {
+    // Static utilities can't be injected, so they use the same registry directly
+    return JsonCodecs.shared();
+  }
+}
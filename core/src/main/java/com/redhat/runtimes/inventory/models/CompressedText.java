@@ -0,0 +1,40 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.models;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/** Gzip encoding of the large text values we store as {@code bytea}, such as raw reports. */
+public final class CompressedText {
+  private CompressedText() {}
+
+  /** Gzips the UTF-8 encoding of the text. */
+  public static byte[] compress(String text) {
+    return compress(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Gzips the given bytes. */
+  public static byte[] compress(byte[] bytes) {
+    var out = new ByteArrayOutputStream(Math.max(64, bytes.length / 8));
+    try (var gzip = new GZIPOutputStream(out)) {
+      gzip.write(bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  /** Gunzips the given bytes and decodes them as UTF-8. */
+  public static String decompress(byte[] gzipped) {
+    try (var gunzip = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+      return new String(gunzip.readAllBytes(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -1,20 +1,18 @@
-/* Copyright (C) Red Hat 2023 */
+/* Copyright (C) Red Hat 2023-2026 */
 package com.redhat.runtimes.inventory.models;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.UnaryOperator;
 import org.hibernate.annotations.NaturalId;
 
 @Entity
 @Table(name = "eap_configuration")
 public class EapConfiguration {
-  @Id @GeneratedValue private UUID id;
+  @Id @TimeOrderedUuid private UUID id;
 
   /****************************************************************************
    *                            Complex Fields
@@ -32,15 +30,24 @@ public class EapConfiguration {
       inverseJoinColumns = {@JoinColumn(name = "eap_extension_id")})
   public Set<EapExtension> extensions;
 
-  // Each subsystem name maps to a json dump of its config
-  @ElementCollection
-  @CollectionTable(name = "eap_configuration_subsystems")
-  private Map<String, String> subsystems;
+  // Each subsystem name maps to a json dump of its config. Most servers built from the same profile
+  // have identical dumps, so each is stored once in text_blob and referenced by its hash
+  @ManyToMany
+  @JoinTable(
+      name = "eap_configuration_subsystems",
+      joinColumns = {@JoinColumn(name = "eap_configuration_id")},
+      inverseJoinColumns = {@JoinColumn(name = "subsystems_hash")})
+  @MapKeyColumn(name = "subsystems_key")
+  private Map<String, TextBlob> subsystems;
 
-  // Each deployment name maps to a json dump of its config
-  @ElementCollection
-  @CollectionTable(name = "eap_configuration_deployments")
-  private Map<String, String> deployments;
+  // Each deployment name maps to a json dump of its config, stored the same way
+  @ManyToMany
+  @JoinTable(
+      name = "eap_configuration_deployments",
+      joinColumns = {@JoinColumn(name = "eap_configuration_id")},
+      inverseJoinColumns = {@JoinColumn(name = "deployments_hash")})
+  @MapKeyColumn(name = "deployments_key")
+  private Map<String, TextBlob> deployments;
 
   /****************************************************************************
    *                            Simple Fields
@@ -149,8 +156,8 @@ public class EapConfiguration {
     this.id = id;
     this.eapInstance = eapInstance;
     this.extensions = extensions;
-    this.subsystems = subsystems;
-    this.deployments = deployments;
+    this.subsystems = blobsOf(subsystems);
+    this.deployments = blobsOf(deployments);
     this.version = version;
     this.launchType = launchType;
     this.name = name;
@@ -298,19 +305,57 @@ public class EapConfiguration {
   }
 
   public Map<String, String> getSubsystems() {
-    return subsystems;
+    return contentsOf(subsystems);
   }
 
   public void setSubsystems(Map<String, String> subsystems) {
-    this.subsystems = subsystems;
+    this.subsystems = blobsOf(subsystems);
   }
 
   public Map<String, String> getDeployments() {
-    return deployments;
+    return contentsOf(deployments);
   }
 
   public void setDeployments(Map<String, String> deployments) {
-    this.deployments = deployments;
+    this.deployments = blobsOf(deployments);
+  }
+
+  /** Returns the shared json dumps this configuration references. */
+  public List<TextBlob> textBlobs() {
+    var out = new ArrayList<TextBlob>();
+    for (var blobs : Arrays.asList(subsystems, deployments)) {
+      if (blobs != null) {
+        blobs.values().stream().filter(Objects::nonNull).forEach(out::add);
+      }
+    }
+    return out;
+  }
+
+  /** Replaces each json dump this configuration references, typically with its stored row. */
+  public void swapTextBlobs(UnaryOperator<TextBlob> rows) {
+    for (var blobs : Arrays.asList(subsystems, deployments)) {
+      if (blobs != null) {
+        blobs.replaceAll((key, blob) -> blob == null ? null : rows.apply(blob));
+      }
+    }
+  }
+
+  private static Map<String, TextBlob> blobsOf(Map<String, String> dumps) {
+    if (dumps == null) {
+      return null;
+    }
+    var out = new HashMap<String, TextBlob>();
+    dumps.forEach((key, dump) -> out.put(key, TextBlob.of(dump)));
+    return out;
+  }
+
+  private static Map<String, String> contentsOf(Map<String, TextBlob> blobs) {
+    if (blobs == null) {
+      return null;
+    }
+    var out = new HashMap<String, String>();
+    blobs.forEach((key, blob) -> out.put(key, blob == null ? null : blob.getContent()));
+    return out;
   }
 
   public String getVersion() {
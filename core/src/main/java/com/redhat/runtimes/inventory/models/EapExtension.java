@@ -1,17 +1,21 @@
-/* Copyright (C) Red Hat 2023 */
+/* Copyright (C) Red Hat 2023-2026 */
 package com.redhat.runtimes.inventory.models;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
-import java.util.Objects;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
 
+/**
+ * An extension and the versions of its subsystems. The set of extensions is small across the whole
+ * fleet, so each distinct one is stored once, identified by the digest of its content, and shared
+ * by every configuration that has it.
+ */
 @Entity
+@Cacheable
 @Table(name = "eap_extension")
 public class EapExtension {
-  @Id @GeneratedValue private UUID id;
+  @Id @TimeOrderedUuid private UUID id;
 
   @NotNull
   @Size(max = 255)
@@ -21,6 +25,10 @@ public class EapExtension {
   @CollectionTable(name = "eap_extension_subsystems")
   private Set<NameVersionPair> subsystems;
 
+  // Digest of the module and its subsystems, the natural key of the row
+  @Size(max = 64)
+  private String contentHash;
+
   public EapExtension() {}
 
   public EapExtension(
@@ -30,20 +38,17 @@ public class EapExtension {
     this.subsystems = subsystems;
   }
 
+  // The content hash identifies the row, and is stored with it, so the subsystems are never loaded
   @Override
   public int hashCode() {
-    return Objects.hash(id, module, subsystems);
+    return contentHash().hashCode();
   }
 
   @Override
   public boolean equals(Object obj) {
     if (this == obj) return true;
-    if (obj == null) return false;
-    if (getClass() != obj.getClass()) return false;
-    EapExtension other = (EapExtension) obj;
-    return Objects.equals(id, other.id)
-        && Objects.equals(module, other.module)
-        && Objects.equals(subsystems, other.subsystems);
+    if (!(obj instanceof EapExtension other)) return false;
+    return contentHash().equals(other.contentHash());
   }
 
   @Override
@@ -51,12 +56,45 @@ public class EapExtension {
     return "EapExtension [id=" + id + ", module=" + module + ", subsystems=" + subsystems + "]";
   }
 
+  /** Returns the digest of the module and subsystems, which identifies the extension. */
+  public String contentHash() {
+    if (contentHash == null) {
+      contentHash = contentHashOf(module, subsystems);
+    }
+    return contentHash;
+  }
+
+  @PrePersist
+  void fillContentHash() {
+    contentHash();
+  }
+
+  /**
+   * Returns the hex encoded SHA-256 of the module followed by the sorted subsystem names and
+   * versions, one per line. The migration that keyed existing rows computes the same digest.
+   */
+  public static String contentHashOf(String module, Collection<NameVersionPair> subsystems) {
+    var sorted = new ArrayList<NameVersionPair>(subsystems == null ? List.of() : subsystems);
+    sorted.sort(
+        Comparator.comparing(NameVersionPair::getName).thenComparing(NameVersionPair::getVersion));
+    var canonical = new StringBuilder(String.valueOf(module));
+    for (var subsystem : sorted) {
+      canonical
+          .append('\n')
+          .append(subsystem.getName())
+          .append('\n')
+          .append(subsystem.getVersion());
+    }
+    return TextBlob.hashOf(canonical.toString());
+  }
+
   public String getModule() {
     return module;
   }
 
   public void setModule(String module) {
     this.module = module;
+    this.contentHash = null;
   }
 
   public Set<NameVersionPair> getSubsystems() {
@@ -65,5 +103,6 @@ public class EapExtension {
 
   public void setSubsystems(Set<NameVersionPair> subsystems) {
     this.subsystems = subsystems;
+    this.contentHash = null;
   }
 }
@@ -1,18 +1,21 @@
-/* Copyright (C) Red Hat 2023 */
+/* Copyright (C) Red Hat 2023-2026 */
 package com.redhat.runtimes.inventory.models;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.UnaryOperator;
 
 @Entity
 @Table(name = "eap_instance")
 public class EapInstance extends JvmInstance {
-  @Id @GeneratedValue private UUID id;
+  @Id @TimeOrderedUuid private UUID id;
 
   /****************************************************************************
    *                            Complex Fields
@@ -91,7 +94,19 @@ public class EapInstance extends JvmInstance {
   /****************************************************************************
    *                            Raw JSON Dumps
    ***************************************************************************/
-  @NotNull private String raw;
+
+  // The raw report is stored gzipped, and only fetched and inflated when it is asked for
+  @Basic(fetch = FetchType.LAZY)
+  @Column(name = "raw_gz")
+  private byte[] rawGz;
+
+  // Rows stored before raw_gz existed, until the background migration compresses them
+  @Basic(fetch = FetchType.LAZY)
+  @Column(name = "raw")
+  private String legacyRaw;
+
+  // Inflated on demand; equality and hashing go by the stored columns instead
+  @Transient private String raw;
 
   public EapInstance() {}
 
@@ -131,7 +146,7 @@ public class EapInstance extends JvmInstance {
     this.eapYamlExtension = eapYamlExtension;
     this.eapBootableJar = eapBootableJar;
     this.eapUseGit = eapUseGit;
-    this.raw = raw;
+    setRaw(raw);
   }
 
   @Override
@@ -158,7 +173,8 @@ public class EapInstance extends JvmInstance {
                 eapYamlExtension,
                 jars,
                 modules,
-                raw);
+                legacyRaw);
+    result = prime * result + Arrays.hashCode(rawGz);
     return result;
   }
 
@@ -185,7 +201,8 @@ public class EapInstance extends JvmInstance {
         && Objects.equals(id, other.id)
         && Objects.equals(jars, other.jars)
         && Objects.equals(modules, other.modules)
-        && Objects.equals(raw, other.raw);
+        && Arrays.equals(rawGz, other.rawGz)
+        && Objects.equals(legacyRaw, other.legacyRaw);
   }
 
   @Override
@@ -206,10 +223,10 @@ public class EapInstance extends JvmInstance {
     sb.append(", heapMax=").append(heapMax);
     sb.append(", details=").append(details);
     sb.append(", created=").append(created);
-    sb.append(", javaClassPath=").append(javaClassPath);
+    sb.append(", javaClassPath=").append(describe(javaClassPath));
     sb.append(", javaClassVersion=").append(javaClassVersion);
-    sb.append(", javaHome=").append(javaHome);
-    sb.append(", javaLibraryPath=").append(javaLibraryPath);
+    sb.append(", javaHome=").append(describe(javaHome));
+    sb.append(", javaLibraryPath=").append(describe(javaLibraryPath));
     sb.append(", javaSpecificationVendor=").append(javaSpecificationVendor);
     sb.append(", javaVendor=").append(javaVendor);
     sb.append(", javaVendorVersion=").append(javaVendorVersion);
@@ -221,8 +238,8 @@ public class EapInstance extends JvmInstance {
     sb.append(", systemOsName=").append(systemOsName);
     sb.append(", systemOsVersion=").append(systemOsVersion);
     sb.append(", javaCommand=").append(javaCommand);
-    sb.append(", jvmPackages=").append(jvmPackages);
-    sb.append(", jvmArgs=").append(jvmArgs);
+    sb.append(", jvmPackages=").append(describe(jvmPackages));
+    sb.append(", jvmArgs=").append(describe(jvmArgs));
     sb.append(", jars=").append(jars);
     sb.append(", modules=").append(modules);
     sb.append(", configuration=").append(configuration);
@@ -239,7 +256,7 @@ public class EapInstance extends JvmInstance {
     sb.append(", eapYamlExtension=").append(eapYamlExtension);
     sb.append(", eapBootableJar=").append(eapBootableJar);
     sb.append(", eapUseGit=").append(eapUseGit);
-    sb.append(", raw=").append(raw);
+    sb.append(", rawGz=").append(rawGz == null ? null : rawGz.length + " bytes");
     sb.append('}');
     return sb.toString();
   }
@@ -276,12 +293,54 @@ public class EapInstance extends JvmInstance {
     this.deployments = deployments;
   }
 
+  /** Returns the raw report, inflating it on first use. */
   public String getRaw() {
+    if (raw == null) {
+      if (rawGz != null) {
+        raw = CompressedText.decompress(rawGz);
+      } else {
+        raw = legacyRaw;
+      }
+    }
     return raw;
   }
 
   public void setRaw(String raw) {
     this.raw = raw;
+    this.rawGz = raw == null ? null : CompressedText.compress(raw);
+    this.legacyRaw = null;
+  }
+
+  /** Sets the raw report from its gzipped UTF-8 encoding, without inflating it. */
+  public void setRawCompressed(byte[] rawGz) {
+    this.raw = null;
+    this.rawGz = rawGz;
+    this.legacyRaw = null;
+  }
+
+  /**
+   * Blanks the raw report of this instance for display only. The stored report is neither fetched
+   * nor changed.
+   */
+  public void omitRaw() {
+    this.raw = "";
+  }
+
+  @Override
+  public List<TextBlob> textBlobs() {
+    var out = super.textBlobs();
+    if (configuration != null) {
+      out.addAll(configuration.textBlobs());
+    }
+    return out;
+  }
+
+  @Override
+  public void swapTextBlobs(UnaryOperator<TextBlob> rows) {
+    super.swapTextBlobs(rows);
+    if (configuration != null) {
+      configuration.swapTextBlobs(rows);
+    }
   }
 
   public String getAppName() {
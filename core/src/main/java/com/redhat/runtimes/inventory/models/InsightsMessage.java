@@ -1,8 +1,6 @@
-/* Copyright (C) Red Hat 2023 */
+/* Copyright (C) Red Hat 2023-2026 */
 package com.redhat.runtimes.inventory.models;
 
-import java.util.ArrayList;
-
 public sealed interface InsightsMessage permits JvmInstance, UpdateInstance {
 
   // This will sanitize the message by redacting any sensitive information that we don't want to
@@ -15,101 +13,93 @@ public sealed interface InsightsMessage permits JvmInstance, UpdateInstance {
    * Sanitizes a string that contains java style parameters of the type -Dxxxxx=yyyyy by
    * substituting the yyyyy value for an obfuscated string
    *
+   * <p>The parameters are tokenized on spaces, but quotes that start a token or follow an '=' are
+   * honoured, so -Dxxxxx="this is all one token" stays one token, and a backslash escapes the next
+   * character. This is done in a single pass: the tokens are copied from the input as they end, and
+   * the output is only built once a value has to be redacted.
+   *
    * @param parameters
    * @return a sanitized parameter string suitable for persisting
    */
   static String sanitizeJavaParameters(final String parameters) {
-    final StringBuilder out = new StringBuilder();
-
-    for (final String token : tokenizeComplexJavaParameters(parameters)) {
-      // We only care about -Dxxxxx=yyyyy params
-      if (token.startsWith("-D") && token.contains("=")) {
-        String[] parts = token.split("=", 2);
-        out.append(parts[0]);
-        out.append(REDACTED_VALUE);
-        // We might be parsing json
-        // if so, preserve the list comma or list closing bracket
-        if (token.endsWith(",")) {
-          out.append(',');
-        }
-        if (token.endsWith("]")) {
-          out.append(']');
-        }
-      } else {
-        out.append(token);
-      }
-      out.append(" ");
-    }
-    // Remove the last added space
-    out.deleteCharAt(out.length() - 1);
-    return out.toString();
-  }
-
-  // This tokenizes a string, but with some special rules
-  // It tokenizes based on spaces, but it will interpret quotes
-  // that start in the middle of a string, after an '='
-  // This is important because some of the data we want to preserve might
-  // look like -Dxxxxx="this is all one token"
-  // This is also aware of escape sequences
-  static String[] tokenizeComplexJavaParameters(final String parameters) {
-    final ArrayList<String> tokens = new ArrayList<String>();
-    StringBuilder currentWord = new StringBuilder();
-    Character currentQuote = null;
+    final int length = parameters.length();
+    StringBuilder out = null;
+    // Start of the current token, and of the input that has not been copied to out yet
+    int tokenStart = 0;
+    int copied = 0;
+    // Position of the first '=' in the current token, -1 if there's none yet
+    int equals = -1;
+    char currentQuote = 0;
     boolean escaping = false;
     boolean afterEquals = false;
     // Order is important here. Rearrange at your own risk.
-    for (final char c : parameters.toCharArray()) {
-      // If we're not escaping, start escaping and continue
-      if (c == '\\' && !escaping) {
-        escaping = true;
-        currentWord.append(c);
-        continue;
-      }
-
-      // If we're escaping, always just add to the word and continue
-      if (escaping) {
-        escaping = false;
-        currentWord.append(c);
-        continue;
-      }
-
-      // If we see an '=', remember that and continue
-      if (c == '=') {
-        afterEquals = true;
-        currentWord.append(c);
-        continue;
+    for (int i = 0; i <= length; i++) {
+      final boolean end = i == length;
+      final char c = end ? ' ' : parameters.charAt(i);
+      if (!end) {
+        // If we're not escaping, start escaping and continue
+        if (c == '\\' && !escaping) {
+          escaping = true;
+          continue;
+        }
+        // If we're escaping, always just take the char and continue
+        if (escaping) {
+          escaping = false;
+          if (c == '=' && equals < 0) {
+            equals = i;
+          }
+          continue;
+        }
+        // If we see an '=', remember that and continue
+        if (c == '=') {
+          afterEquals = true;
+          if (equals < 0) {
+            equals = i;
+          }
+          continue;
+        }
       }
 
-      // If we're not in a quote and we hit a space, save the word and continue
-      if (currentQuote == null && c == ' ') {
-        tokens.add(currentWord.toString());
-        currentWord = new StringBuilder();
+      // If we're not in a quote and we hit a space (or the end), the token is complete
+      if (end || (currentQuote == 0 && c == ' ')) {
+        // We only care about -Dxxxxx=yyyyy params
+        if (equals >= 0 && parameters.startsWith("-D", tokenStart)) {
+          if (out == null) {
+            out = new StringBuilder(length + REDACTED_VALUE.length());
+          }
+          out.append(parameters, copied, equals).append(REDACTED_VALUE);
+          // We might be parsing json
+          // if so, preserve the list comma or list closing bracket
+          final char last = parameters.charAt(i - 1);
+          if (last == ',' || last == ']') {
+            out.append(last);
+          }
+          copied = i;
+        }
+        tokenStart = i + 1;
+        equals = -1;
         continue;
       }
 
       // If we see a quote...
       if (c == '\'' || c == '"') {
         // If we are quoting...
-        if (currentQuote != null) {
+        if (currentQuote != 0) {
           // stop quoting if we're at the matching quote
           if (c == currentQuote) {
-            currentQuote = null;
+            currentQuote = 0;
           }
-        } else {
+        } else if (afterEquals || i == tokenStart) {
           // So we're not quoting...
           // If we're at a new word or after an equals, start quoting
-          if (afterEquals || currentWord.isEmpty()) {
-            currentQuote = c;
-          }
+          currentQuote = c;
         }
       }
-
-      // Otherwise, just add the char
       afterEquals = false;
-      currentWord.append(c);
     }
-    // Add the last word for the end of string
-    tokens.add(currentWord.toString());
-    return tokens.toArray(new String[0]);
+    if (out == null) {
+      return parameters;
+    }
+    return out.append(parameters, copied, length).toString();
   }
 }
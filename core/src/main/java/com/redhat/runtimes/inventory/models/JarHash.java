@@ -1,4 +1,4 @@
-/* Copyright (C) Red Hat 2023 */
+/* Copyright (C) Red Hat 2023-2026 */
 package com.redhat.runtimes.inventory.models;
 
 import jakarta.persistence.*;
@@ -8,10 +8,11 @@ import java.util.Objects;
 import java.util.UUID;
 
 @Entity
+@Cacheable
 @Table(name = "jar_hash")
 public class JarHash {
 
-  @Id @GeneratedValue private UUID id;
+  @Id @TimeOrderedUuid private UUID id;
 
   @NotNull
   @Size(max = 255)
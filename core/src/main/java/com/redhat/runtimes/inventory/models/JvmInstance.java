@@ -1,4 +1,4 @@
-/* Copyright (C) Red Hat 2023 */
+/* Copyright (C) Red Hat 2023-2026 */
 package com.redhat.runtimes.inventory.models;
 
 import static org.hibernate.type.SqlTypes.*;
@@ -8,6 +8,8 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.function.UnaryOperator;
+import org.hibernate.Hibernate;
 import org.hibernate.annotations.JdbcTypeCode;
 
 @Entity
@@ -15,7 +17,7 @@ import org.hibernate.annotations.JdbcTypeCode;
 @Inheritance(strategy = InheritanceType.JOINED)
 public non-sealed class JvmInstance implements InsightsMessage {
 
-  @Id @GeneratedValue protected UUID id;
+  @Id @TimeOrderedUuid protected UUID id;
 
   @NotNull
   @Size(max = 255)
@@ -68,6 +70,13 @@ public non-sealed class JvmInstance implements InsightsMessage {
   // Data record created
   @NotNull protected ZonedDateTime created;
 
+  // Latest report received for this instance
+  @NotNull protected ZonedDateTime lastSeen;
+
+  // Digest of the report contents, apart from its timestamps
+  @Size(max = 64)
+  protected String fingerprint;
+
   @ManyToMany(cascade = CascadeType.PERSIST)
   @JoinTable(
       name = "jvm_instance_jar_hash",
@@ -119,17 +128,34 @@ public non-sealed class JvmInstance implements InsightsMessage {
   @Size(max = 255)
   protected String systemOsVersion;
 
-  @NotNull protected String javaHome;
+  // The large text values below are repeated verbatim across the instances of an application, so
+  // each is stored once in text_blob and referenced by its hash
+  @NotNull
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "java_home_hash")
+  protected TextBlob javaHome;
 
-  @NotNull protected String javaLibraryPath;
+  @NotNull
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "java_library_path_hash")
+  protected TextBlob javaLibraryPath;
 
   @NotNull protected String javaCommand;
 
-  @NotNull protected String javaClassPath;
+  @NotNull
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "java_class_path_hash")
+  protected TextBlob javaClassPath;
 
-  @NotNull protected String jvmPackages;
+  @NotNull
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "jvm_packages_hash")
+  protected TextBlob jvmPackages;
 
-  @NotNull protected String jvmArgs;
+  @NotNull
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "jvm_args_hash")
+  protected TextBlob jvmArgs;
 
   @NotNull protected String workload = "Unidentified";
 
@@ -190,10 +216,10 @@ public non-sealed class JvmInstance implements InsightsMessage {
     this.heapMax = heapMax;
     this.details = (Map<String, Object>) details;
     this.created = created;
-    this.javaClassPath = javaClassPath;
+    this.javaClassPath = TextBlob.of(javaClassPath);
     this.javaClassVersion = javaClassVersion;
-    this.javaHome = javaHome;
-    this.javaLibraryPath = javaLibraryPath;
+    this.javaHome = TextBlob.of(javaHome);
+    this.javaLibraryPath = TextBlob.of(javaLibraryPath);
     this.javaSpecificationVendor = javaSpecificationVendor;
     this.javaVendor = javaVendor;
     this.javaVendorVersion = javaVendorVersion;
@@ -205,8 +231,8 @@ public non-sealed class JvmInstance implements InsightsMessage {
     this.systemOsName = systemOsName;
     this.systemOsVersion = systemOsVersion;
     this.javaCommand = javaCommand;
-    this.jvmPackages = jvmPackages;
-    this.jvmArgs = jvmArgs;
+    this.jvmPackages = TextBlob.of(jvmPackages);
+    this.jvmArgs = TextBlob.of(jvmArgs);
     this.workload = workload;
     this.isOcp = isOcp;
   }
@@ -325,6 +351,22 @@ public non-sealed class JvmInstance implements InsightsMessage {
     this.created = created;
   }
 
+  public ZonedDateTime getLastSeen() {
+    return lastSeen;
+  }
+
+  public void setLastSeen(ZonedDateTime lastSeen) {
+    this.lastSeen = lastSeen;
+  }
+
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  public void setFingerprint(String fingerprint) {
+    this.fingerprint = fingerprint;
+  }
+
   public long getLaunchTime() {
     return launchTime;
   }
@@ -350,11 +392,11 @@ public non-sealed class JvmInstance implements InsightsMessage {
   }
 
   public String getJavaClassPath() {
-    return javaClassPath;
+    return javaClassPath == null ? null : javaClassPath.getContent();
   }
 
   public void setJavaClassPath(String javaClassPath) {
-    this.javaClassPath = javaClassPath;
+    this.javaClassPath = TextBlob.of(javaClassPath);
   }
 
   public String getJavaClassVersion() {
@@ -374,19 +416,19 @@ public non-sealed class JvmInstance implements InsightsMessage {
   }
 
   public String getJavaHome() {
-    return javaHome;
+    return javaHome == null ? null : javaHome.getContent();
   }
 
   public void setJavaHome(String javaHome) {
-    this.javaHome = javaHome;
+    this.javaHome = TextBlob.of(javaHome);
   }
 
   public String getJavaLibraryPath() {
-    return javaLibraryPath;
+    return javaLibraryPath == null ? null : javaLibraryPath.getContent();
   }
 
   public void setJavaLibraryPath(String javaLibraryPath) {
-    this.javaLibraryPath = javaLibraryPath;
+    this.javaLibraryPath = TextBlob.of(javaLibraryPath);
   }
 
   public String getJavaSpecificationVendor() {
@@ -470,19 +512,19 @@ public non-sealed class JvmInstance implements InsightsMessage {
   }
 
   public String getJvmPackages() {
-    return jvmPackages;
+    return jvmPackages == null ? null : jvmPackages.getContent();
   }
 
   public void setJvmPackages(String jvmPackages) {
-    this.jvmPackages = jvmPackages;
+    this.jvmPackages = TextBlob.of(jvmPackages);
   }
 
   public String getJvmArgs() {
-    return jvmArgs;
+    return jvmArgs == null ? null : jvmArgs.getContent();
   }
 
   public void setJvmArgs(String jvmArgs) {
-    this.jvmArgs = jvmArgs;
+    this.jvmArgs = TextBlob.of(jvmArgs);
   }
 
   public String getWorkload() {
@@ -501,6 +543,39 @@ public non-sealed class JvmInstance implements InsightsMessage {
     isOcp = ocp;
   }
 
+  /** Returns the shared text values this instance references. */
+  public List<TextBlob> textBlobs() {
+    var out = new ArrayList<TextBlob>(5);
+    for (var blob :
+        new TextBlob[] {javaHome, javaLibraryPath, javaClassPath, jvmPackages, jvmArgs}) {
+      if (blob != null) {
+        out.add(blob);
+      }
+    }
+    return out;
+  }
+
+  /** Replaces each text value this instance references, typically with its stored row. */
+  public void swapTextBlobs(UnaryOperator<TextBlob> rows) {
+    javaHome = swap(javaHome, rows);
+    javaLibraryPath = swap(javaLibraryPath, rows);
+    javaClassPath = swap(javaClassPath, rows);
+    jvmPackages = swap(jvmPackages, rows);
+    jvmArgs = swap(jvmArgs, rows);
+  }
+
+  private static TextBlob swap(TextBlob blob, UnaryOperator<TextBlob> rows) {
+    return blob == null ? null : rows.apply(blob);
+  }
+
+  // The value of a loaded blob, or just its hash for a reference, so printing never queries
+  protected static String describe(TextBlob blob) {
+    if (blob == null) {
+      return null;
+    }
+    return Hibernate.isInitialized(blob) ? blob.getContent() : blob.toString();
+  }
+
   //////////////////////////////////////////////////////
 
   @Override
@@ -674,22 +749,22 @@ public non-sealed class JvmInstance implements InsightsMessage {
         + systemOsVersion
         + '\''
         + ", javaHome='"
-        + javaHome
+        + describe(javaHome)
         + '\''
         + ", javaLibraryPath='"
-        + javaLibraryPath
+        + describe(javaLibraryPath)
         + '\''
         + ", javaCommand='"
         + javaCommand
         + '\''
         + ", javaClassPath='"
-        + javaClassPath
+        + describe(javaClassPath)
         + '\''
         + ", jvmPackages='"
-        + jvmPackages
+        + describe(jvmPackages)
         + '\''
         + ", jvmArgs='"
-        + jvmArgs
+        + describe(jvmArgs)
         + '\''
         + ", workload='"
         + workload
@@ -0,0 +1,79 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * A large text value shared by many instances, such as a class path or the arguments of a JVM. A
+ * value is stored once, keyed by the hex encoded SHA-256 of its UTF-8 encoding, and rows are never
+ * updated.
+ */
+@Entity
+@Cacheable
+@Immutable
+@BatchSize(size = 50)
+@Table(name = "text_blob")
+public class TextBlob {
+
+  @Id
+  @Size(max = 64)
+  private String hash;
+
+  @NotNull private String content;
+
+  public TextBlob() {}
+
+  private TextBlob(String hash, String content) {
+    this.hash = hash;
+    this.content = content;
+  }
+
+  /** Returns the blob holding the given value, or null for a null value. */
+  public static TextBlob of(String content) {
+    return content == null ? null : new TextBlob(hashOf(content), content);
+  }
+
+  /** Returns the key a value is stored under. */
+  public static String hashOf(String content) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  public String getHash() {
+    return hash;
+  }
+
+  public String getContent() {
+    return content;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof TextBlob that)) return false;
+    return Objects.equals(getHash(), that.getHash());
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(getHash());
+  }
+
+  @Override
+  public String toString() {
+    return "TextBlob{hash=" + getHash() + '}';
+  }
+}
@@ -0,0 +1,16 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.models;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import org.hibernate.annotations.IdGeneratorType;
+
+/** Marks a UUID id whose values are generated by {@link TimeOrderedUuidGenerator}. */
+@IdGeneratorType(TimeOrderedUuidGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface TimeOrderedUuid {}
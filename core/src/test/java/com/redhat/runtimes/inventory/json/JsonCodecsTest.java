@@ -0,0 +1,33 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.json;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.time.Instant;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class JsonCodecsTest {
+
+  @Test
+  public void testReadersAndWritersAreReused() {
+    var codecs = JsonCodecs.shared();
+    assertSame(codecs.readerFor(String.class), codecs.readerFor(String.class));
+    assertSame(codecs.writerFor(String.class), codecs.writerFor(String.class));
+    assertSame(
+        codecs.readerFor(new TypeReference<Map<String, Object>>() {}),
+        codecs.readerFor(new TypeReference<Map<String, Object>>() {}));
+    assertSame(codecs, new JsonConfiguration().jsonCodecs());
+  }
+
+  @Test
+  public void testJavaTimeSupport() throws Exception {
+    var codecs = JsonCodecs.shared();
+    var now = Instant.ofEpochSecond(1700000000L);
+    var json = codecs.writer().writeValueAsString(Map.of("ts", now));
+    Map<String, Instant> o =
+        codecs.readerFor(new TypeReference<Map<String, Instant>>() {}).readValue(json);
+    assertEquals(now, o.get("ts"));
+  }
+}
@@ -0,0 +1,38 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class EapExtensionTest {
+
+  @Test
+  public void testContentHashIgnoresSubsystemOrder() {
+    var logging = pair("logging", "8.0.0");
+    var jmx = pair("jmx", "1.1.0");
+    var extension = new EapExtension(null, "org.jboss.as.logging", Set.of(logging, jmx));
+    var reordered =
+        new EapExtension(null, "org.jboss.as.logging", new LinkedHashSet<>(List.of(jmx, logging)));
+    assertEquals(extension.contentHash(), reordered.contentHash());
+    assertEquals(extension, reordered);
+    assertEquals(
+        TextBlob.hashOf("org.jboss.as.logging\njmx\n1.1.0\nlogging\n8.0.0"),
+        extension.contentHash());
+
+    reordered.setSubsystems(Set.of(logging, pair("jmx", "1.2.0")));
+    assertNotEquals(extension.contentHash(), reordered.contentHash());
+    assertNotEquals(extension, reordered);
+  }
+
+  private static NameVersionPair pair(String name, String version) {
+    var pair = new NameVersionPair();
+    pair.setName(name);
+    pair.setVersion(version);
+    return pair;
+  }
+}
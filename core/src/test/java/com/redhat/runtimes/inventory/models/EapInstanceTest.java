@@ -0,0 +1,54 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class EapInstanceTest {
+
+  @Test
+  public void testRawIsKeptCompressed() {
+    var json = "{\"basic\": {\"system.hostname\": \"überhost.local\"}}";
+
+    var eap = new EapInstance();
+    eap.setRaw(json);
+    assertEquals(json, eap.getRaw());
+
+    var fromCompressed = new EapInstance();
+    fromCompressed.setRawCompressed(CompressedText.compress(json));
+    assertEquals(json, fromCompressed.getRaw());
+
+    fromCompressed.omitRaw();
+    assertEquals("", fromCompressed.getRaw());
+
+    var empty = new EapInstance();
+    assertNull(empty.getRaw());
+  }
+
+  @Test
+  public void testEqualityUsesTheStoredReport() {
+    var json = "{\"basic\": {\"system.hostname\": \"host.local\"}}";
+
+    var eap = new EapInstance();
+    eap.setRaw(json);
+    var fromCompressed = new EapInstance();
+    fromCompressed.setRawCompressed(CompressedText.compress(json));
+    assertEquals(eap, fromCompressed);
+    assertEquals(eap.hashCode(), fromCompressed.hashCode());
+
+    // Inflating the report does not change identity
+    fromCompressed.getRaw();
+    assertEquals(eap, fromCompressed);
+    assertEquals(eap.hashCode(), fromCompressed.hashCode());
+
+    var other = new EapInstance();
+    other.setRaw("{}");
+    assertNotEquals(eap, other);
+
+    assertTrue(eap.toString().contains("rawGz=" + CompressedText.compress(json).length + " bytes"));
+  }
+}
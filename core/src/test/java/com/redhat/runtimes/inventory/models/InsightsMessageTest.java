@@ -1,9 +1,11 @@
-/* Copyright (C) Red Hat 2023 */
+/* Copyright (C) Red Hat 2023-2026 */
 package com.redhat.runtimes.inventory.models;
 
 import static com.redhat.runtimes.inventory.models.InsightsMessage.REDACTED_VALUE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.ArrayList;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 public class InsightsMessageTest {
@@ -74,4 +76,119 @@ public class InsightsMessageTest {
 
     assertEquals(sanitizedJvmArgs, InsightsMessage.sanitizeJavaParameters(sanitizedJvmArgs));
   }
+
+  @Test
+  public void testSanitizeEdgeCases() {
+    for (var parameters :
+        new String[] {
+          "",
+          " ",
+          "-D",
+          "-Da=",
+          "-Da=b",
+          "-Da\\=b",
+          "-Da=b\\",
+          "  -Da=b  -Dc=d,",
+          "-Da='b c' -Dd=\"e f]\" g",
+          "-Da=\"unterminated quote",
+          "x= 'y z' -Dq=1",
+          "-D'a b'=c",
+          "'-Da=b c'"
+        }) {
+      assertEquals(
+          referenceSanitize(parameters), InsightsMessage.sanitizeJavaParameters(parameters));
+    }
+  }
+
+  // Random command lines made of the characters the tokenizer cares about must sanitize exactly as
+  // the original tokenizer based implementation did
+  @Test
+  public void testSanitizeMatchesReferenceImplementation() {
+    var alphabet =
+        new String[] {"-D", "-", "D", "=", "'", "\"", "\\", " ", ",", "]", "[", "a", "b"};
+    var random = new Random(20260101L);
+    for (int n = 0; n < 100_000; n++) {
+      var parameters = new StringBuilder();
+      int length = random.nextInt(30);
+      for (int i = 0; i < length; i++) {
+        parameters.append(alphabet[random.nextInt(alphabet.length)]);
+      }
+      var input = parameters.toString();
+      assertEquals(
+          referenceSanitize(input),
+          InsightsMessage.sanitizeJavaParameters(input),
+          "Input: " + input);
+    }
+  }
+
+  /****************************************************************************
+   *          The tokenizer based implementation, kept as a reference
+   ***************************************************************************/
+  private static String referenceSanitize(final String parameters) {
+    final StringBuilder out = new StringBuilder();
+
+    for (final String token : referenceTokenize(parameters)) {
+      if (token.startsWith("-D") && token.contains("=")) {
+        String[] parts = token.split("=", 2);
+        out.append(parts[0]);
+        out.append(REDACTED_VALUE);
+        if (token.endsWith(",")) {
+          out.append(',');
+        }
+        if (token.endsWith("]")) {
+          out.append(']');
+        }
+      } else {
+        out.append(token);
+      }
+      out.append(" ");
+    }
+    out.deleteCharAt(out.length() - 1);
+    return out.toString();
+  }
+
+  private static String[] referenceTokenize(final String parameters) {
+    final ArrayList<String> tokens = new ArrayList<String>();
+    StringBuilder currentWord = new StringBuilder();
+    Character currentQuote = null;
+    boolean escaping = false;
+    boolean afterEquals = false;
+    for (final char c : parameters.toCharArray()) {
+      if (c == '\\' && !escaping) {
+        escaping = true;
+        currentWord.append(c);
+        continue;
+      }
+      if (escaping) {
+        escaping = false;
+        currentWord.append(c);
+        continue;
+      }
+      if (c == '=') {
+        afterEquals = true;
+        currentWord.append(c);
+        continue;
+      }
+      if (currentQuote == null && c == ' ') {
+        tokens.add(currentWord.toString());
+        currentWord = new StringBuilder();
+        continue;
+      }
+      if (c == '\'' || c == '"') {
+        if (currentQuote != null) {
+          if (c == currentQuote) {
+            currentQuote = null;
+          }
+        } else {
+          if (afterEquals || currentWord.isEmpty()) {
+            currentQuote = c;
+          }
+        }
+      }
+      afterEquals = false;
+      currentWord.append(c);
+    }
+    tokens.add(currentWord.toString());
+    return tokens.toArray(new String[0]);
+  }
 }
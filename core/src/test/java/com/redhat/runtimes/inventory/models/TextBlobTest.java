@@ -0,0 +1,74 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class TextBlobTest {
+
+  @Test
+  public void testHashIsSha256OfContent() {
+    assertEquals(
+        "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+        TextBlob.of("abc").getHash());
+    assertEquals(TextBlob.of("/usr/lib/jvm/java-17"), TextBlob.of("/usr/lib/jvm/java-17"));
+    assertNull(TextBlob.of(null));
+  }
+
+  @Test
+  public void testInstanceSharesBlobs() {
+    var inst = new JvmInstance();
+    inst.setJavaClassPath("/opt/app/lib/a.jar:/opt/app/lib/b.jar");
+    inst.setJavaHome("/usr/lib/jvm/java-17");
+    inst.setJvmArgs("/usr/lib/jvm/java-17");
+    assertEquals(3, inst.textBlobs().size());
+
+    // Equal values end up referencing the same row
+    var row = TextBlob.of("/usr/lib/jvm/java-17");
+    inst.swapTextBlobs(blob -> blob.equals(row) ? row : blob);
+    assertSame(row, inst.textBlobs().get(0));
+    assertSame(row, inst.textBlobs().get(2));
+    assertEquals("/opt/app/lib/a.jar:/opt/app/lib/b.jar", inst.getJavaClassPath());
+    assertEquals("/usr/lib/jvm/java-17", inst.getJavaHome());
+    assertEquals("/usr/lib/jvm/java-17", inst.getJvmArgs());
+    assertNull(inst.getJvmPackages());
+  }
+
+  @Test
+  public void testEapConfigurationDumpsAreBlobs() {
+    var config = new EapConfiguration();
+    config.setSubsystems(Map.of("jmx", "{}", "io", "{}"));
+    config.setDeployments(Map.of("app.war", "{\"enabled\":true}"));
+    var eap = new EapInstance();
+    eap.setJavaHome("/usr/lib/jvm/java-17");
+    eap.setConfiguration(config);
+
+    // Identical dumps share their blob
+    assertEquals(4, eap.textBlobs().size());
+    assertEquals(3, new HashSet<>(eap.textBlobs()).size());
+
+    var rows = new HashMap<TextBlob, TextBlob>();
+    eap.swapTextBlobs(blob -> rows.computeIfAbsent(blob, b -> b));
+    assertSame(config.textBlobs().get(0), config.textBlobs().get(1));
+    assertEquals(Map.of("jmx", "{}", "io", "{}"), config.getSubsystems());
+    assertEquals(Map.of("app.war", "{\"enabled\":true}"), config.getDeployments());
+  }
+
+  @Test
+  public void testToStringPrintsValues() {
+    var inst = new JvmInstance();
+    inst.setJavaHome("/usr/lib/jvm/java-17");
+    assertTrue(inst.toString().contains("javaHome='/usr/lib/jvm/java-17'"));
+
+    var eap = new EapInstance();
+    eap.setJvmArgs("-Xmx1g");
+    assertTrue(eap.toString().contains("jvmArgs=-Xmx1g"));
+  }
+}
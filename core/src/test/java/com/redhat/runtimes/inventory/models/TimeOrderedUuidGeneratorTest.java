@@ -0,0 +1,38 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+public class TimeOrderedUuidGeneratorTest {
+
+  @Test
+  public void testVersionSevenLayout() {
+    long millis = 1_767_225_600_000L; // 2026-01-01T00:00:00Z
+    var uuid = TimeOrderedUuidGenerator.next(millis);
+    assertEquals(7, uuid.version());
+    assertEquals(2, uuid.variant());
+    assertEquals(millis, uuid.getMostSignificantBits() >>> 16);
+  }
+
+  @Test
+  public void testIdsSortInTimeOrder() {
+    var ids = new HashSet<UUID>();
+    UUID previous = null;
+    for (long millis = 1_767_225_600_000L; millis < 1_767_225_601_000L; millis++) {
+      var uuid = TimeOrderedUuidGenerator.next(millis);
+      assertTrue(ids.add(uuid));
+      if (previous != null) {
+        // PostgreSQL orders uuids by their unsigned bytes
+        assertTrue(
+            Long.compareUnsigned(previous.getMostSignificantBits(), uuid.getMostSignificantBits())
+                < 0);
+      }
+      previous = uuid;
+    }
+  }
+}
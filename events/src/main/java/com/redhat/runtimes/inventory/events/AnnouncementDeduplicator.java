@@ -0,0 +1,163 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+
+/**
+ * Recognises announcements that were already ingested, so a redelivered one is neither downloaded
+ * nor persisted again. An announcement is claimed in {@code kafka_message} by the transaction that
+ * persists its reports, or on its own when all of its reports are filtered out. A Bloom filter of
+ * the claimed ids, loaded at startup and refreshed from the table, lets the announcements that were
+ * never seen skip the database check.
+ */
+@ApplicationScoped
+public class AnnouncementDeduplicator {
+  private static final ZoneId UTC = ZoneId.of("UTC");
+
+  private static final String CLAIM_SQL =
+      """
+      INSERT INTO kafka_message (id, created)
+      SELECT m.id, ? FROM unnest(?) AS m(id)
+      ON CONFLICT DO NOTHING
+      RETURNING id""";
+
+  // Claims made by other pods just before a refresh may carry a slightly older timestamp
+  private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+  @Inject EntityManager entityManager;
+
+  // How many announcements are expected within the window, which sizes the Bloom filter
+  @ConfigProperty(name = "inventory.dedup.expected-messages", defaultValue = "1000000")
+  long expectedMessages;
+
+  // How long the ids of ingested announcements are kept
+  @ConfigProperty(name = "inventory.dedup.window", defaultValue = "P3D")
+  Duration window;
+
+  private volatile UuidBloomFilter seen;
+
+  private volatile LocalDateTime refreshedUpTo;
+
+  @PostConstruct
+  public void init() {
+    seen = new UuidBloomFilter(expectedMessages);
+  }
+
+  /** Returns the idempotency key of an announcement, or null if it has nothing to identify it. */
+  public static UUID keyOf(ArchiveAnnouncement announce) {
+    String key;
+    if (announce.getRequestId() != null) {
+      key = "request:" + announce.getRequestId();
+    } else if (announce.getUrl() != null) {
+      key = "url:" + announce.getUrl();
+    } else {
+      return null;
+    }
+    return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Whether the announcement with this key has already been ingested. */
+  public boolean isDuplicate(UUID key) {
+    if (key == null || !seen.mightContain(key)) {
+      return false;
+    }
+    return entityManager.find(KafkaMessage.class, key) != null;
+  }
+
+  /**
+   * Claims the given announcements in the current transaction, and returns the ones that hadn't
+   * been claimed before.
+   */
+  public Set<UUID> claim(Collection<UUID> keys) {
+    if (keys.isEmpty()) {
+      return Set.of();
+    }
+    var claimed = new HashSet<UUID>();
+    entityManager
+        .unwrap(Session.class)
+        .doWork(
+            conn -> {
+              try (var insert = conn.prepareStatement(CLAIM_SQL)) {
+                insert.setObject(1, LocalDateTime.now(UTC));
+                insert.setArray(2, conn.createArrayOf("uuid", keys.toArray(UUID[]::new)));
+                try (var rs = insert.executeQuery()) {
+                  while (rs.next()) {
+                    claimed.add(rs.getObject(1, UUID.class));
+                  }
+                }
+              }
+            });
+    // A claim that is rolled back only costs an extra database check later
+    keys.forEach(seen::add);
+    return claimed;
+  }
+
+  // The consumers start before the first scheduled refresh, which would miss every redelivery
+  @ActivateRequestContext
+  void onStart(@Observes StartupEvent event) {
+    try {
+      refresh();
+    } catch (RuntimeException e) {
+      Log.warn("Could not load the ingested announcement ids, the next refresh will retry", e);
+    }
+  }
+
+  /** Adds the announcements claimed by every pod since the last refresh to the filter. */
+  @Scheduled(
+      every = "${inventory.dedup.refresh-interval:1m}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void refresh() {
+    var now = LocalDateTime.now(UTC);
+    if (refreshedUpTo == null) {
+      seen = load(now.minus(window));
+    } else {
+      addClaimedSince(seen, refreshedUpTo.minus(REFRESH_OVERLAP));
+    }
+    refreshedUpTo = now;
+  }
+
+  /** Forgets the announcements older than the window, and rebuilds the filter without them. */
+  @Scheduled(cron = "${inventory.dedup.purge-cron:0 15 3 * * ?}")
+  @Transactional
+  void purge() {
+    var now = LocalDateTime.now(UTC);
+    int deleted =
+        entityManager
+            .createQuery("DELETE FROM KafkaMessage m WHERE m.created < :cutoff")
+            .setParameter("cutoff", now.minus(window))
+            .executeUpdate();
+    Log.infof("Purged %d ingested announcement ids", deleted);
+    seen = load(now.minus(window));
+    refreshedUpTo = now;
+  }
+
+  private UuidBloomFilter load(LocalDateTime since) {
+    var filter = new UuidBloomFilter(expectedMessages);
+    addClaimedSince(filter, since);
+    return filter;
+  }
+
+  private void addClaimedSince(UuidBloomFilter filter, LocalDateTime since) {
+    entityManager
+        .createQuery("SELECT m.id FROM KafkaMessage m WHERE m.created >= :since", UUID.class)
+        .setParameter("since", since)
+        .getResultStream()
+        .forEach(filter::add);
+  }
+}
@@ -1,26 +1,23 @@
-/* Copyright (C) Red Hat 2023 */
+/* Copyright (C) Red Hat 2023-2026 */
 package com.redhat.runtimes.inventory.events;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.redhat.runtimes.inventory.json.JsonCodecs;
 import jakarta.enterprise.context.ApplicationScoped;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 @ApplicationScoped
 public final class ArchiveAnnouncementParser {
-  static final ObjectMapper objectMapper = getMapper();
+  static final ObjectReader reader =
+      JsonCodecs.shared()
+          .readerFor(ArchiveAnnouncement.class)
+          .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
   // FIXME Add schema support?
   //  private static final JsonSchema jsonSchema = getJsonSchema();
 
-  private static ObjectMapper getMapper() {
-    var mapper = new ObjectMapper();
-    mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-    mapper.registerModule(new JavaTimeModule());
-    return mapper;
-  }
-
   public ArchiveAnnouncement fromJsonString(String json) {
     try {
       return decode(json);
@@ -29,9 +26,18 @@ public final class ArchiveAnnouncementParser {
     }
   }
 
+  /** Parses a record value straight from its UTF-8 bytes. */
+  public ArchiveAnnouncement fromJsonBytes(byte[] json) {
+    try {
+      return reader.readValue(json);
+    } catch (IOException jsonx) {
+      throw new RuntimeException(
+          "Failed to unmarshal JSON: " + new String(json, StandardCharsets.UTF_8), jsonx);
+    }
+  }
+
   private static ArchiveAnnouncement decode(String actionJson) throws JsonProcessingException {
-    JsonNode action = objectMapper.readTree(actionJson);
     //    validate(action, jsonSchema);
-    return objectMapper.treeToValue(action, ArchiveAnnouncement.class);
+    return reader.readValue(actionJson);
   }
 }
@@ -0,0 +1,138 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import io.quarkus.logging.Log;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+
+/**
+ * Walks the runtimes reports of an egg archive one entry at a time. The egg file is a gzipped
+ * tarfile, and only the entries under {@link #INSIGHTS_DATA_PATH} are ours. Each report is handed
+ * over as its UTF-8 bytes as soon as it has been read, so at most one report, plus the configured
+ * look-ahead, is held in memory.
+ */
+public final class ArchiveReports {
+  static final String INSIGHTS_DATA_PATH = "/data/var/tmp/insights-runtimes/uploads/";
+
+  // Reads archives ahead of the thread that decodes their reports
+  private static final ExecutorService readers =
+      Executors.newCachedThreadPool(
+          r -> {
+            var t = new Thread(r, "egg-archive-reader");
+            t.setDaemon(true);
+            return t;
+          });
+
+  private static final Object END = new Object();
+
+  private ArchiveReports() {}
+
+  /**
+   * Hands every report in the archive to {@code action}, in archive order, on the calling thread.
+   *
+   * @param archiveStream the gzipped tarfile
+   * @param lookAhead how many reports may be read ahead of {@code action}, 0 to read them inline
+   * @param action called with each report
+   */
+  public static void forEach(InputStream archiveStream, int lookAhead, Consumer<byte[]> action) {
+    if (lookAhead <= 0) {
+      read(archiveStream, action);
+      return;
+    }
+
+    BlockingQueue<Object> queue = new ArrayBlockingQueue<>(lookAhead);
+    var reader =
+        readers.submit(
+            () -> {
+              try {
+                read(archiveStream, json -> put(queue, json));
+                put(queue, END);
+              } catch (Throwable t) {
+                // Errors too, or the caller would wait for the next report forever
+                put(queue, t);
+              }
+            });
+    try {
+      while (true) {
+        var next = queue.take();
+        if (next == END) {
+          return;
+        }
+        if (next instanceof RuntimeException e) {
+          throw e;
+        }
+        if (next instanceof Error e) {
+          throw e;
+        }
+        action.accept((byte[]) next);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } finally {
+      // Unblocks the reader if we stopped early
+      reader.cancel(true);
+    }
+  }
+
+  /**
+   * Reads the report at the given position again. This is only used to retry a report, so the
+   * archive is simply walked from the start.
+   */
+  public static byte[] reportAt(byte[] archive, int index) {
+    var found = new byte[1][];
+    var count = new int[1];
+    read(
+        new ByteArrayInputStream(archive),
+        json -> {
+          if (count[0]++ == index) {
+            found[0] = json;
+          }
+        });
+    if (found[0] == null) {
+      throw new IllegalStateException("No report at position " + index + " in the archive");
+    }
+    return found[0];
+  }
+
+  private static void read(InputStream archiveStream, Consumer<byte[]> action) {
+    try (var gzis = new GzipCompressorInputStream(archiveStream);
+        var tarInput = new TarArchiveInputStream(gzis)) {
+      ArchiveEntry entry;
+      while ((entry = tarInput.getNextEntry()) != null) {
+        // Skip any file not in our relevant path
+        if (!entry.getName().contains(INSIGHTS_DATA_PATH)) {
+          continue;
+        }
+
+        // The tar stream ends at the end of the current entry, the report is kept as read
+        byte[] json = tarInput.readAllBytes();
+        if (json.length == 0) {
+          continue;
+        }
+        action.accept(json);
+      }
+    } catch (IOException e) {
+      Log.error("Error in reading archive: ", e);
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void put(BlockingQueue<Object> queue, Object o) {
+    try {
+      queue.put(o);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+}
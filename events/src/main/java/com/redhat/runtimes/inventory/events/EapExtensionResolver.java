@@ -0,0 +1,196 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.redhat.runtimes.inventory.models.EapExtension;
+import com.redhat.runtimes.inventory.models.EapInstance;
+import com.redhat.runtimes.inventory.models.TimeOrderedUuidGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+
+/**
+ * Maps the extensions of a decoded EAP report onto the shared catalog in {@code eap_extension},
+ * where an extension is identified by the digest of its module and subsystem versions. The
+ * extensions that aren't in the catalog yet are inserted along with their subsystems, and the
+ * configuration then links to the rows, loaded in one go, so persisting a report only writes {@code
+ * eap_configuration_eap_extension}.
+ *
+ * <p>The catalog is small, so the ids of its rows are kept in memory and most reports never look it
+ * up in the database.
+ */
+@ApplicationScoped
+public class EapExtensionResolver {
+  private static final String INSERT_SQL =
+      """
+      INSERT INTO eap_extension (id, module, content_hash)
+      SELECT * FROM unnest(?::uuid[], ?::varchar[], ?::varchar[])
+        AS e(id, module, content_hash)
+      ON CONFLICT (content_hash) DO NOTHING
+      RETURNING id, content_hash""";
+
+  private static final String INSERT_SUBSYSTEMS_SQL =
+      """
+      INSERT INTO eap_extension_subsystems (eap_extension_id, name, version)
+      SELECT * FROM unnest(?::uuid[], ?::varchar[], ?::varchar[])
+      ON CONFLICT DO NOTHING""";
+
+  private static final String SELECT_SQL =
+      "SELECT id, content_hash FROM eap_extension WHERE content_hash = ANY(?::varchar[])";
+
+  @Inject EntityManager entityManager;
+
+  @Inject MeterRegistry registry;
+
+  @Inject TransactionSynchronizationRegistry txRegistry;
+
+  // How many extensions of the catalog are remembered along with the id of their row
+  @ConfigProperty(name = "inventory.eap-extension.cache-size", defaultValue = "10000")
+  long cacheSize;
+
+  private Cache<String, UUID> ids;
+
+  @PostConstruct
+  public void init() {
+    ids = Caffeine.newBuilder().maximumSize(cacheSize).recordStats().build();
+    CaffeineCacheMetrics.monitor(registry, ids, "eap-extension-ids");
+  }
+
+  // Forgets every cached id, for when eap_extension has been emptied
+  void clearCache() {
+    ids.invalidateAll();
+  }
+
+  /** Replaces the extensions of the instance's configuration with their rows in the catalog. */
+  public void resolve(EapInstance eap) {
+    var config = eap.getConfiguration();
+    if (config == null || config.getExtensions() == null) {
+      return;
+    }
+    var rows = lookup(config.getExtensions());
+    // A single query, or none for rows in the second-level cache, rather than one per extension
+    var loaded =
+        entityManager
+            .unwrap(Session.class)
+            .byMultipleIds(EapExtension.class)
+            .multiLoad(List.copyOf(new HashSet<>(rows.values())));
+    var out = new HashSet<EapExtension>();
+    for (var row : loaded) {
+      if (row == null) {
+        // A cached id whose row was deleted behind our back, the next attempt looks them up again
+        ids.invalidateAll(rows.keySet());
+        throw new IllegalStateException("An eap_extension row is gone for " + eap.getLinkingHash());
+      }
+      out.add(row);
+    }
+    config.setExtensions(out);
+  }
+
+  Map<String, UUID> lookup(Collection<EapExtension> extensions) {
+    var out = new HashMap<String, UUID>();
+    // Every transaction inserts extensions in hash order, so overlapping inserts can't deadlock
+    var misses = new TreeMap<String, EapExtension>();
+    for (var extension : extensions) {
+      var hash = extension.contentHash();
+      var id = ids.getIfPresent(hash);
+      if (id == null) {
+        misses.putIfAbsent(hash, extension);
+      } else {
+        out.put(hash, id);
+      }
+    }
+    if (!misses.isEmpty()) {
+      var found = new HashMap<String, UUID>();
+      entityManager.unwrap(Session.class).doWork(conn -> upsert(conn, misses, found));
+      for (var hash : misses.keySet()) {
+        if (!found.containsKey(hash)) {
+          throw new IllegalStateException("No eap_extension row found for " + misses.get(hash));
+        }
+      }
+      out.putAll(found);
+      // Every transaction trusts cached ids, so the rows are only cached once they are committed
+      txRegistry.registerInterposedSynchronization(
+          new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+              if (status == Status.STATUS_COMMITTED) {
+                ids.putAll(found);
+              }
+            }
+          });
+    }
+    return out;
+  }
+
+  private static void upsert(
+      Connection conn, Map<String, EapExtension> misses, Map<String, UUID> found)
+      throws SQLException {
+    var inserted = new HashMap<String, UUID>();
+    try (var insert = conn.prepareStatement(INSERT_SQL)) {
+      insert.setArray(
+          1,
+          conn.createArrayOf(
+              "uuid",
+              misses.keySet().stream().map(hash -> TimeOrderedUuidGenerator.next()).toArray()));
+      insert.setArray(
+          2,
+          conn.createArrayOf(
+              "varchar", misses.values().stream().map(EapExtension::getModule).toArray()));
+      insert.setArray(3, conn.createArrayOf("varchar", misses.keySet().toArray()));
+      try (var rs = insert.executeQuery()) {
+        while (rs.next()) {
+          inserted.put(rs.getString(2), rs.getObject(1, UUID.class));
+        }
+      }
+    }
+    // Only the rows inserted here get their subsystems, the others already have them
+    if (!inserted.isEmpty()) {
+      var rowIds = new ArrayList<UUID>();
+      var names = new ArrayList<String>();
+      var versions = new ArrayList<String>();
+      inserted.forEach(
+          (hash, id) -> {
+            var subsystems = misses.get(hash).getSubsystems();
+            if (subsystems != null) {
+              for (var subsystem : subsystems) {
+                rowIds.add(id);
+                names.add(subsystem.getName());
+                versions.add(subsystem.getVersion());
+              }
+            }
+          });
+      try (var insert = conn.prepareStatement(INSERT_SUBSYSTEMS_SQL)) {
+        insert.setArray(1, conn.createArrayOf("uuid", rowIds.toArray()));
+        insert.setArray(2, conn.createArrayOf("varchar", names.toArray()));
+        insert.setArray(3, conn.createArrayOf("varchar", versions.toArray()));
+        insert.executeUpdate();
+      }
+    }
+    found.putAll(inserted);
+    if (found.size() < misses.size()) {
+      try (var select = conn.prepareStatement(SELECT_SQL)) {
+        select.setArray(1, conn.createArrayOf("varchar", misses.keySet().toArray()));
+        try (var rs = select.executeQuery()) {
+          while (rs.next()) {
+            found.putIfAbsent(rs.getString(2), rs.getObject(1, UUID.class));
+          }
+        }
+      }
+    }
+  }
+}
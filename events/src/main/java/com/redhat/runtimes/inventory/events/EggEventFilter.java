@@ -0,0 +1,81 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Rejects the host inventory events that can't be runtimes uploads by looking at the raw record
+ * value, so most events on the egg topic are dropped without being decoded or databound.
+ *
+ * <p>The check is conservative: an event passes if it carries the runtimes content type anywhere,
+ * or if any {@code is_runtimes} field in it is {@code true}. Events that pass are still parsed and
+ * checked in full.
+ */
+public final class EggEventFilter {
+  private static final byte[] CONTENT_TYPE =
+      EventConsumer.VALID_CONTENT_TYPE.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] IS_RUNTIMES = "\"is_runtimes\"".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] TRUE = "true".getBytes(StandardCharsets.UTF_8);
+
+  private EggEventFilter() {}
+
+  /** Whether the event might announce a runtimes upload. A tombstone, with no value, never does. */
+  public static boolean mightBeRuntimes(byte[] payload) {
+    if (payload == null) {
+      return false;
+    }
+    if (indexOf(payload, CONTENT_TYPE, 0) >= 0) {
+      return true;
+    }
+    int from = 0;
+    int found;
+    while ((found = indexOf(payload, IS_RUNTIMES, from)) >= 0) {
+      from = found + IS_RUNTIMES.length;
+      if (isTrueValue(payload, from)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Accepts both true and "true" after the colon, the full parse decides between them
+  private static boolean isTrueValue(byte[] payload, int pos) {
+    pos = skipWhitespace(payload, pos);
+    if (pos >= payload.length || payload[pos] != ':') {
+      return false;
+    }
+    pos = skipWhitespace(payload, pos + 1);
+    if (pos < payload.length && payload[pos] == '"') {
+      pos++;
+    }
+    return regionMatches(payload, pos, TRUE);
+  }
+
+  private static int skipWhitespace(byte[] payload, int pos) {
+    while (pos < payload.length
+        && (payload[pos] == ' '
+            || payload[pos] == '\n'
+            || payload[pos] == '\r'
+            || payload[pos] == '\t')) {
+      pos++;
+    }
+    return pos;
+  }
+
+  static int indexOf(byte[] payload, byte[] needle, int from) {
+    byte first = needle[0];
+    int last = payload.length - needle.length;
+    for (int i = from; i <= last; i++) {
+      if (payload[i] == first && regionMatches(payload, i, needle)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean regionMatches(byte[] payload, int pos, byte[] needle) {
+    return pos + needle.length <= payload.length
+        && Arrays.equals(payload, pos, pos + needle.length, needle, 0, needle.length);
+  }
+}
@@ -1,11 +1,15 @@
-/* Copyright (C) Red Hat 2023 */
+/* Copyright (C) Red Hat 2023-2026 */
 package com.redhat.runtimes.inventory.events;
 
 import static com.redhat.runtimes.inventory.events.Utils.*;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.redhat.runtimes.inventory.json.JsonCodecs;
 import com.redhat.runtimes.inventory.models.EapInstance;
 import com.redhat.runtimes.inventory.models.InsightsMessage;
 import com.redhat.runtimes.inventory.models.JvmInstance;
+import com.redhat.runtimes.inventory.models.TextBlob;
 import com.redhat.runtimes.inventory.models.UpdateInstance;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -13,29 +17,35 @@ import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
 import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
 import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.smallrye.reactive.messaging.annotations.Blocking;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.context.control.ActivateRequestContext;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
-import jakarta.transaction.Transactional;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
-import java.util.zip.GZIPInputStream;
-import org.apache.commons.compress.archivers.ArchiveEntry;
-import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.eclipse.microprofile.reactive.messaging.Message;
 import org.hibernate.Session;
@@ -48,11 +58,59 @@ public class EventConsumer {
   public static final String PROCESSING_ERROR_COUNTER_NAME = "input.processing.error";
   public static final String PROCESSING_EXCEPTION_COUNTER_NAME = "input.processing.exception";
   public static final String DUPLICATE_COUNTER_NAME = "input.duplicate";
-  public static final String CONSUMED_TIMER_NAME = "input.consumed";
+  public static final String UNCHANGED_COUNTER_NAME = "input.unchanged";
+  public static final String CONSUMED_COUNTER_NAME = "input.consumed";
+  public static final String BATCH_TIMER_NAME = "input.batch";
+  public static final String FETCH_TIMER_NAME = "input.fetch";
+  public static final String DECODE_TIMER_NAME = "input.decode";
+  public static final String PERSIST_TIMER_NAME = "input.persist";
 
   static final String VALID_CONTENT_TYPE =
       "application/vnd.redhat.runtimes-java-general.analytics+tgz";
 
+  // Returns no row when there is no instance with the linking hash
+  private static final String UPDATE_JARS_SQL =
+      """
+      WITH inst AS (SELECT id FROM jvm_instance WHERE linking_hash = ?),
+      added AS (
+        INSERT INTO jvm_instance_jar_hash (jvm_instance_id, jar_hash_id)
+        SELECT inst.id, jar.id FROM inst, unnest(?) AS jar(id)
+        ON CONFLICT DO NOTHING
+        RETURNING jar_hash_id)
+      SELECT (SELECT count(*) FROM added) FROM inst""";
+
+  // Only marks the instance as seen if its stored report is the same as this one. Returns no row
+  // if there is no instance with the linking hash, else whether its report was the same.
+  private static final String TOUCH_INSTANCE_SQL =
+      """
+      WITH inst AS (
+        SELECT id, hostname = ? AND fingerprint = ? AS unchanged
+        FROM jvm_instance WHERE linking_hash = ?),
+      touched AS (
+        UPDATE jvm_instance j SET last_seen = ? FROM inst WHERE j.id = inst.id AND inst.unchanged)
+      SELECT unchanged FROM inst""";
+
+  // Writes every column a report maps onto to the instance with the linking hash and links its
+  // jars, returns no row if there is none
+  private static final String REFRESH_INSTANCE_SQL =
+      """
+      WITH inst AS (
+        UPDATE jvm_instance SET hostname = ?, launch_time = ?, vendor = ?, version_string = ?,
+          version = ?, major_version = ?, os_arch = ?, processors = ?, heap_min = ?, heap_max = ?,
+          details = ?::jsonb, java_class_version = ?, java_specification_vendor = ?,
+          java_vendor = ?, java_vendor_version = ?, java_vm_name = ?, java_vm_vendor = ?,
+          jvm_heap_gc_details = ?, jvm_pid = ?, jvm_report_time = ?, system_os_name = ?,
+          system_os_version = ?, java_home_hash = ?, java_library_path_hash = ?, java_command = ?,
+          java_class_path_hash = ?, jvm_packages_hash = ?, jvm_args_hash = ?, workload = ?,
+          is_ocp = ?, last_seen = ?, fingerprint = ?
+        WHERE linking_hash = ?
+        RETURNING id),
+      added AS (
+        INSERT INTO jvm_instance_jar_hash (jvm_instance_id, jar_hash_id)
+        SELECT inst.id, jar.id FROM inst, unnest(?) AS jar(id)
+        ON CONFLICT DO NOTHING)
+      SELECT id FROM inst""";
+
   private static final String EVENT_TYPE_NOT_FOUND_MSG =
       "No event type found for [bundleName=%s, applicationName=%s, eventTypeName=%s]";
 
@@ -60,15 +118,45 @@ public class EventConsumer {
 
   @Inject EntityManager entityManager;
 
-  @Inject Session session;
+  @Inject JarHashResolver jarHashResolver;
+
+  @Inject TextBlobResolver textBlobResolver;
+
+  @Inject EapExtensionResolver eapExtensionResolver;
+
+  @Inject AnnouncementDeduplicator deduplicator;
+
+  @Inject TransactionSynchronizationRegistry txRegistry;
+
+  // How many archive downloads may be in flight at once, across both channels
+  @ConfigProperty(name = "inventory.fetch.max-in-flight", defaultValue = "8")
+  int maxInFlight;
+
+  // How many reports of an egg archive may be read ahead of the one being decoded
+  @ConfigProperty(name = "inventory.egg.look-ahead", defaultValue = "2")
+  int eggLookAhead;
+
+  // How many reports of one egg archive are decoded in parallel, 1 to decode them inline
+  @ConfigProperty(name = "inventory.egg.decode-threads", defaultValue = "1")
+  int eggDecodeThreads;
+
+  private ExecutorService decodePool;
+
+  private static final ObjectWriter detailsWriter = JsonCodecs.shared().writer();
+
+  // Keys the linking hashes of the instances persisted since the last flush of a transaction
+  private static final Object UNFLUSHED_KEY = new Object();
 
   private static HttpClient httpClient;
 
+  private Semaphore inFlight;
+
   private ArchiveAnnouncementParser jsonParser = new ArchiveAnnouncementParser();
 
   private Counter rejectedCounter;
   private Counter processingErrorCounter;
   private Counter duplicateCounter;
+  private Counter unchangedCounter;
   private Counter processingExceptionCounter;
 
   private static Clock clock = Clock.systemDefaultZone();
@@ -79,194 +167,594 @@ public class EventConsumer {
     processingErrorCounter = registry.counter(PROCESSING_ERROR_COUNTER_NAME);
     processingExceptionCounter = registry.counter(PROCESSING_EXCEPTION_COUNTER_NAME);
     duplicateCounter = registry.counter(DUPLICATE_COUNTER_NAME);
+    unchangedCounter = registry.counter(UNCHANGED_COUNTER_NAME);
+    inFlight = new Semaphore(maxInFlight);
+    if (eggDecodeThreads > 1) {
+      decodePool =
+          Executors.newFixedThreadPool(
+              eggDecodeThreads,
+              r -> {
+                var t = new Thread(r, "egg-report-decoder");
+                t.setDaemon(true);
+                return t;
+              });
+    }
     new ProcessorMetrics().bindTo(registry);
     new JvmMemoryMetrics().bindTo(registry);
   }
 
+  @PreDestroy
+  public void shutdown() {
+    if (decodePool != null) {
+      decodePool.shutdownNow();
+    }
+  }
+
   @Incoming(INGRESS_CHANNEL)
   @Blocking
   @ActivateRequestContext
-  @Transactional
-  public CompletionStage<Void> processMainFlow(Message<String> message) {
-    // This timer will have dynamic tag values based on the action parsed from the received message.
-    Timer.Sample consumedTimer = Timer.start(registry);
-    var payload = message.getPayload();
+  public CompletionStage<Void> processMainFlow(Message<List<byte[]>> batch) {
+    long start = System.nanoTime();
+    var payloads = batch.getPayload();
+    persistBatch(readBatch(payloads, false));
+    recordConsumed(payloads.size(), start);
 
+    return batch.ack();
+  }
+
+  @Incoming(EGG_CHANNEL)
+  @Blocking
+  @ActivateRequestContext
+  public CompletionStage<Void> processEggFlow(Message<List<byte[]>> batch) {
+    long start = System.nanoTime();
+    var records = batch.getPayload();
+    // Most host inventory events aren't runtimes uploads, drop those before decoding them
+    var payloads = new ArrayList<byte[]>();
+    for (var value : records) {
+      if (EggEventFilter.mightBeRuntimes(value)) {
+        payloads.add(value);
+      } else {
+        rejectedCounter.increment();
+      }
+    }
+    persistBatch(readBatch(payloads, true));
+    recordConsumed(records.size(), start);
+
+    return batch.ack();
+  }
+
+  // A decoded report, the key of the announcement it came with, and a way to decode it again
+  record Report(UUID messageId, InsightsMessage msg, Supplier<InsightsMessage> source) {}
+
+  // A record whose archive is being downloaded. The body is null when there is nothing to fetch.
+  record Download(
+      byte[] payload,
+      ArchiveAnnouncement announce,
+      CompletableFuture<byte[]> body,
+      Throwable error) {}
+
+  /**
+   * Decodes the records of a batch in order. The archives of the next records are downloaded while
+   * the current one is decoded, up to the in-flight limit.
+   */
+  List<Report> readBatch(List<byte[]> payloads, boolean isEgg) {
+    var reports = new ArrayList<Report>();
+    var downloads = new ArrayDeque<Download>();
+    var it = payloads.iterator();
+    while (it.hasNext() || !downloads.isEmpty()) {
+      while (it.hasNext() && downloads.size() < maxInFlight) {
+        downloads.add(startDownload(it.next(), isEgg));
+      }
+      var download = downloads.poll();
+      int count = reports.size();
+      boolean read = isEgg ? readEggPayload(download, reports) : readMainPayload(download, reports);
+      if (read && reports.size() == count) {
+        claimUnused(AnnouncementDeduplicator.keyOf(download.announce()));
+      }
+    }
+    return reports;
+  }
+
+  /**
+   * Claims an announcement whose archive was read but none of whose reports are persisted, because
+   * they were all filtered out, so a redelivery isn't downloaded and decoded again. Archives that
+   * failed to download or decode aren't claimed, a redelivery may still succeed. Nothing else is
+   * written, so the claim gets a small transaction of its own.
+   */
+  void claimUnused(UUID messageId) {
+    if (messageId == null) {
+      return;
+    }
     try {
-      Log.debugf("Processing received Kafka message %s", payload);
-
-      // Parse JSON using Jackson
-      var announce = jsonParser.fromJsonString(payload);
-      if (announce.getContentType().equals(VALID_CONTENT_TYPE)) {
-
-        // Get data back from S3
-        Log.infof("Processed message URL: %s", announce.getUrl());
-        var archiveJson = getJsonFromS3(announce.getUrl());
-        Log.debugf("Retrieved from S3: %s", archiveJson);
-        if (shouldProcessMessage(archiveJson, clock, false)) {
-          processMessage(announce, archiveJson);
+      QuarkusTransaction.requiringNew().run(() -> deduplicator.claim(Set.of(messageId)));
+    } catch (Throwable t) {
+      Log.warnf(t, "Could not claim the announcement %s", messageId);
+    }
+  }
+
+  Download startDownload(byte[] payload, boolean isEgg) {
+    try {
+      if (Log.isDebugEnabled()) {
+        if (isEgg) {
+          Log.debugf("Processing received Kafka message from egg %s", utf8(payload));
+        } else {
+          Log.debugf("Processing received Kafka message %s", utf8(payload));
         }
       }
 
+      // Parse JSON using Jackson, straight from the record bytes
+      var announce = jsonParser.fromJsonBytes(payload);
+      boolean wanted =
+          isEgg
+              ? (VALID_CONTENT_TYPE.equals(announce.getContentType()) || announce.isRuntimes())
+                  && announce.getUrl() != null
+              : announce.getContentType().equals(VALID_CONTENT_TYPE);
+      if (!wanted) {
+        return new Download(payload, announce, null, null);
+      }
+      if (deduplicator.isDuplicate(AnnouncementDeduplicator.keyOf(announce))) {
+        duplicateCounter.increment();
+        Log.infof("Skipping already ingested message URL: %s", announce.getUrl());
+        return new Download(payload, announce, null, null);
+      }
+      // Get data back from S3
+      Log.infof("Processed message URL: %s", announce.getUrl());
+      return new Download(payload, announce, fetchFromS3(announce.getUrl()), null);
+    } catch (Throwable t) {
+      return new Download(payload, null, null, t);
+    }
+  }
+
+  /**
+   * Reads the report of an ingress archive into {@code reports}, unless it is filtered out.
+   *
+   * @return whether the archive was downloaded and read without errors
+   */
+  boolean readMainPayload(Download download, List<Report> reports) {
+    try {
+      if (download.error() != null) {
+        throw download.error();
+      }
+      if (download.body() == null) {
+        return false;
+      }
+      // The archive is gunzipped straight into the parser, it's never held uncompressed
+      var archive = awaitBody(download);
+      if (ReportPrefilter.skipGzipped(archive, clock, false)) {
+        return true;
+      }
+      var announce = download.announce();
+      Supplier<InsightsMessage> source = () -> ReportDecoder.decodeGzipped(announce, archive);
+      var msg = decode(source);
+      if (shouldProcessMessage(msg, clock, false)) {
+        reports.add(new Report(AnnouncementDeduplicator.keyOf(announce), msg, source));
+      }
+      return true;
     } catch (Throwable t) {
       processingExceptionCounter.increment();
       Log.errorf(t, "Could not process the payload");
-      Log.debugf(t, "payload: %s", payload);
-    } finally {
-      // FIXME Might need tags
-      consumedTimer.stop(registry.timer(CONSUMED_TIMER_NAME));
+      Log.debugf(t, "payload: %s", utf8(download.payload()));
+      return false;
     }
-
-    return message.ack();
   }
 
-  @Incoming(EGG_CHANNEL)
-  @Blocking
-  @ActivateRequestContext
-  @Transactional
-  public CompletionStage<Void> processEggFlow(Message<String> message) {
-    // This timer will have dynamic tag values based on the action parsed from the received message.
-    Timer.Sample consumedTimer = Timer.start(registry);
-    var payload = message.getPayload();
-
+  /**
+   * Reads the reports of an egg archive into {@code reports}, leaving out the filtered ones.
+   *
+   * @return whether the archive was downloaded and every report in it read without errors
+   */
+  boolean readEggPayload(Download download, List<Report> reports) {
     try {
-      Log.debugf("Processing received Kafka message from egg %s", payload);
-
-      // Parse JSON using Jackson
-      var announce = jsonParser.fromJsonString(payload);
-      if (VALID_CONTENT_TYPE.equals(announce.getContentType()) || announce.isRuntimes()) {
-        var url = announce.getUrl();
-        if (url != null) {
-          // Get data back from S3
-          Log.infof("Processed message URL: %s", url);
-          var jsonFiles = getJsonsFromArchiveStream(getInputStreamFromS3(announce.getUrl()));
-          Log.debugf("Found [%s] files in the S3 archive.", jsonFiles.size());
-          for (String json : jsonFiles) {
-            if (shouldProcessMessage(json, clock, true)) {
-              processMessage(announce, json);
-            }
+      if (download.error() != null) {
+        throw download.error();
+      }
+      if (download.body() == null) {
+        return false;
+      }
+      var announce = download.announce();
+      var messageId = AnnouncementDeduplicator.keyOf(announce);
+      var archive = awaitBody(download);
+      var index = new int[1];
+      var unmapped = new int[1];
+      // Reports are decoded in parallel but completed in archive order
+      var pending = new ArrayDeque<PendingReport>();
+      try {
+        ArchiveReports.forEach(
+            new ByteArrayInputStream(archive),
+            eggLookAhead,
+            json -> {
+              // Retries read the report from the archive again rather than keeping every JSON
+              int position = index[0]++;
+              if (ReportPrefilter.skip(json, clock, true)) {
+                return;
+              }
+              Supplier<InsightsMessage> source =
+                  () -> instanceOf(announce, ArchiveReports.reportAt(archive, position));
+              pending.add(new PendingReport(decodeAsync(() -> instanceOf(announce, json)), source));
+              while (pending.size() > Math.max(eggDecodeThreads, 1)) {
+                if (!completeEggReport(pending.poll(), messageId, reports)) {
+                  unmapped[0]++;
+                }
+              }
+            });
+      } finally {
+        while (!pending.isEmpty()) {
+          if (!completeEggReport(pending.poll(), messageId, reports)) {
+            unmapped[0]++;
           }
         }
       }
+      Log.debugf("Found [%s] files in the S3 archive.", index[0]);
+      return unmapped[0] == 0;
     } catch (Throwable t) {
       processingExceptionCounter.increment();
       Log.errorf(t, "Could not process the egg payload.");
-      Log.debugf(t, "payload: %s", payload);
-    } finally {
-      // FIXME Might need tags
-      consumedTimer.stop(registry.timer(CONSUMED_TIMER_NAME));
+      Log.debugf(t, "payload: %s", utf8(download.payload()));
+      return false;
     }
+  }
+
+  // An egg report whose decoding may still be running
+  record PendingReport(CompletableFuture<InsightsMessage> msg, Supplier<InsightsMessage> source) {}
 
-    return message.ack();
+  private CompletableFuture<InsightsMessage> decodeAsync(Supplier<InsightsMessage> source) {
+    if (decodePool == null) {
+      try {
+        return CompletableFuture.completedFuture(decode(source));
+      } catch (RuntimeException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+    return CompletableFuture.supplyAsync(() -> decode(source), decodePool);
   }
 
-  @Transactional
-  public void processMessage(ArchiveAnnouncement announce, String json) {
-    // Needs to be visible in the catch block
-    JvmInstance inst = null;
+  // Returns whether the report could be mapped
+  private boolean completeEggReport(PendingReport pending, UUID messageId, List<Report> reports) {
+    InsightsMessage msg;
     try {
-      InsightsMessage msg = instanceOf(announce, json);
-
-      if (msg instanceof EapInstance) {
-        inst = (EapInstance) msg;
-      } else if (msg instanceof JvmInstance) {
-        inst = (JvmInstance) msg;
-      } else if (msg instanceof UpdateInstance update) {
-        var linkingHash = update.getLinkingHash();
-        var maybeInst = getInstanceFromHash(linkingHash);
-        if (maybeInst.isPresent()) {
-          inst = maybeInst.get();
-          var newJars = update.getUpdates();
-          inst.getJarHashes().addAll(newJars);
-        } else {
-          throw new IllegalStateException(
-              "Update message seen for non-existent hash: " + linkingHash);
+      msg = pending.msg().join();
+    } catch (CompletionException e) {
+      // A report that can't be mapped shouldn't stop the rest of the archive
+      processingExceptionCounter.increment();
+      Log.errorf(e.getCause(), "Could not map a report from the egg archive.");
+      return false;
+    }
+    if (shouldProcessMessage(msg, clock, true)) {
+      reports.add(new Report(messageId, msg, pending.source()));
+    }
+    return true;
+  }
+
+  private InsightsMessage decode(Supplier<InsightsMessage> source) {
+    return registry.timer(DECODE_TIMER_NAME).record(source);
+  }
+
+  private static byte[] awaitBody(Download download) throws Throwable {
+    try {
+      return download.body().get();
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Persists all the reports of a poll batch in a single transaction, so Hibernate can batch the
+   * inserts. The same transaction claims the announcements of the reports, and drops the reports of
+   * announcements that another consumer has ingested in the meantime. If that transaction fails,
+   * each report is retried in a transaction of its own so a single bad report doesn't lose the rest
+   * of the batch.
+   */
+  void persistBatch(List<Report> reports) {
+    if (reports.isEmpty()) {
+      return;
+    }
+    var sample = Timer.start(registry);
+    var duplicates = new HashSet<UUID>();
+    try {
+      QuarkusTransaction.requiringNew()
+          .run(
+              () -> {
+                var keys = new HashSet<UUID>();
+                for (var report : reports) {
+                  if (report.messageId() != null) {
+                    keys.add(report.messageId());
+                  }
+                }
+                var claimed = deduplicator.claim(keys);
+                for (var report : reports) {
+                  if (report.messageId() != null && !claimed.contains(report.messageId())) {
+                    duplicates.add(report.messageId());
+                  } else {
+                    persist(report.msg());
+                  }
+                }
+              });
+      duplicateCounter.increment(duplicates.size());
+    } catch (Throwable t) {
+      Log.warnf(
+          t, "Could not persist a batch of %d reports, retrying them one by one", reports.size());
+      var claimed = new HashSet<UUID>();
+      duplicates.clear();
+      for (var report : reports) {
+        if (report.messageId() == null || !duplicates.contains(report.messageId())) {
+          // The failed attempt left generated ids on the entities, so start again from the JSON
+          processMessage(report.messageId(), report.source(), claimed, duplicates);
         }
-      } else {
-        // Can't happen, but just in case
-        throw new IllegalStateException("Message seen that is neither a new instance or an update");
       }
+      duplicateCounter.increment(duplicates.size());
+    } finally {
+      sample.stop(registry.timer(PERSIST_TIMER_NAME));
+    }
+  }
+
+  public void processMessage(InsightsMessage msg) {
+    processMessage(null, () -> msg, new HashSet<>(), new HashSet<>());
+  }
 
-      if (inst != null) {
-        Log.debugf("About to persist: %s", inst);
-        entityManager.persist(inst);
-        entityManager.flush();
-        session.evict(inst);
+  /**
+   * Decodes and persists a report in a transaction of its own. The reports of an egg archive share
+   * their announcement, so {@code claimed} holds the announcements this caller has already claimed,
+   * and the reports of an announcement that someone else claimed are added to {@code duplicates}
+   * instead.
+   */
+  void processMessage(
+      UUID messageId, Supplier<InsightsMessage> source, Set<UUID> claimed, Set<UUID> duplicates) {
+    InsightsMessage msg = null;
+    try {
+      msg = source.get();
+      var inst = msg;
+      boolean persisted =
+          QuarkusTransaction.requiringNew()
+              .call(
+                  () -> {
+                    if (messageId != null
+                        && !claimed.contains(messageId)
+                        && deduplicator.claim(Set.of(messageId)).isEmpty()) {
+                      return false;
+                    }
+                    persist(inst);
+                    return true;
+                  });
+      if (!persisted) {
+        duplicates.add(messageId);
+      } else if (messageId != null) {
+        claimed.add(messageId);
       }
     } catch (Throwable t) {
       processingExceptionCounter.increment();
       Log.errorf(t, "Could not process and/or persist the object.");
-      Log.debugf(t, "The object: %s", inst);
+      Log.debugf(t, "The object: %s", msg);
     }
   }
 
-  Optional<JvmInstance> getInstanceFromHash(String linkingHash) {
-    List<JvmInstance> instances =
-        entityManager
-            .createQuery("SELECT ri from JvmInstance ri where ri.linkingHash = ?1")
-            .setParameter(1, linkingHash)
-            .getResultList();
-    if (instances.size() > 1) {
-      throw new IllegalStateException(
-          "Multiple instances found matching linking hash: " + linkingHash);
-    } else if (instances.size() == 0) {
-      return Optional.empty();
+  void persist(InsightsMessage msg) {
+    JvmInstance inst;
+    if (msg instanceof EapInstance) {
+      inst = (EapInstance) msg;
+    } else if (msg instanceof JvmInstance) {
+      inst = (JvmInstance) msg;
+    } else if (msg instanceof UpdateInstance update) {
+      applyUpdate(update);
+      return;
+    } else {
+      // Can't happen, but just in case
+      throw new IllegalStateException("Message seen that is neither a new instance or an update");
     }
-    return Optional.of(instances.get(0));
-  }
 
-  /****************************************************************************
-   *                           Utility Methods
-   ***************************************************************************/
+    inst.setFingerprint(ReportFingerprint.of(inst));
+    // The statements below only see an instance persisted earlier in this batch once it's flushed
+    var unflushed = unflushed();
+    if (unflushed.contains(inst.getLinkingHash())) {
+      entityManager.flush();
+      unflushed.clear();
+    }
+    var stored = touchStored(inst);
+    if (stored == StoredReport.UNCHANGED) {
+      unchangedCounter.increment();
+      return;
+    }
+    if (stored == StoredReport.CHANGED) {
+      if (!(inst instanceof EapInstance)) {
+        if (refreshExisting(inst)) {
+          return;
+        }
+      } else if (removeStored(inst)) {
+        unflushed.clear();
+      }
+    }
+    // Logged before the shared values are swapped for references, which only print their hash
+    Log.debugf("About to persist: %s", inst);
+    jarHashResolver.resolve(inst);
+    textBlobResolver.resolve(inst);
+    if (inst instanceof EapInstance eap) {
+      eapExtensionResolver.resolve(eap);
+    }
+    entityManager.persist(inst);
+    unflushed.add(inst.getLinkingHash());
+  }
 
-  public static String unzipJson(byte[] buffy) {
-    try (var bais = new ByteArrayInputStream(buffy);
-        var gunzip = new GZIPInputStream(bais)) {
-      return new String(gunzip.readAllBytes());
-    } catch (IOException e) {
-      Log.error("Error in Unzipping archive: ", e);
-      throw new RuntimeException(e);
+  @SuppressWarnings("unchecked")
+  private Set<String> unflushed() {
+    var hashes = (Set<String>) txRegistry.getResource(UNFLUSHED_KEY);
+    if (hashes == null) {
+      hashes = new HashSet<>();
+      txRegistry.putResource(UNFLUSHED_KEY, hashes);
     }
+    return hashes;
+  }
+
+  // What is stored for the linking hash of a report
+  enum StoredReport {
+    MISSING,
+    UNCHANGED,
+    CHANGED
   }
 
-  public static List<String> getJsonsFromArchiveStream(InputStream archiveStream) {
-    // The egg file comes in as a String, but it is actually a gzipped tarfile
-    // So we will turn it into a stream, 'uncompress' the stream, then walk
-    // the archive for files we care about.
-    String insightsDataPath = "/data/var/tmp/insights-runtimes/uploads/";
-    List<String> jsonFiles = new ArrayList<String>();
+  /**
+   * Most JVMs keep sending the same report, so when the stored fingerprint matches only the
+   * last-seen time is written. Only a report of an instance that is stored with a different report
+   * is worth the work of a refresh.
+   */
+  StoredReport touchStored(JvmInstance inst) {
+    var stored = new StoredReport[] {StoredReport.MISSING};
+    entityManager
+        .unwrap(Session.class)
+        .doWork(
+            conn -> {
+              try (var touch = conn.prepareStatement(TOUCH_INSTANCE_SQL)) {
+                touch.setString(1, inst.getHostname());
+                touch.setString(2, inst.getFingerprint());
+                touch.setString(3, inst.getLinkingHash());
+                touch.setObject(4, inst.getLastSeen().toOffsetDateTime());
+                try (var rs = touch.executeQuery()) {
+                  if (rs.next()) {
+                    stored[0] = rs.getBoolean(1) ? StoredReport.UNCHANGED : StoredReport.CHANGED;
+                  }
+                }
+              }
+            });
+    return stored[0];
+  }
 
+  /**
+   * A JVM that reports again keeps its row: every column the report maps onto and its last-seen
+   * time are written, and any new jars linked, in a single statement. Returns false if the instance
+   * with the linking hash is gone.
+   */
+  boolean refreshExisting(JvmInstance inst) {
+    var jarIds = jarHashResolver.resolveIds(inst.getJarHashes()).toArray(UUID[]::new);
+    var blobs =
+        List.of(
+            TextBlob.of(inst.getJavaHome()),
+            TextBlob.of(inst.getJavaLibraryPath()),
+            TextBlob.of(inst.getJavaClassPath()),
+            TextBlob.of(inst.getJvmPackages()),
+            TextBlob.of(inst.getJvmArgs()));
+    textBlobResolver.store(blobs);
+    String details;
     try {
-      GzipCompressorInputStream gzis = new GzipCompressorInputStream(archiveStream);
-      TarArchiveInputStream tarInput = new TarArchiveInputStream(gzis);
+      details = detailsWriter.writeValueAsString(inst.getDetails());
+    } catch (JsonProcessingException e) {
+      Log.error("Error in marshalling JSON", e);
+      throw new RuntimeException("Error in marshalling JSON", e);
+    }
+    var found = new boolean[1];
+    entityManager
+        .unwrap(Session.class)
+        .doWork(
+            conn -> {
+              try (var update = conn.prepareStatement(REFRESH_INSTANCE_SQL)) {
+                int i = 1;
+                update.setString(i++, inst.getHostname());
+                update.setLong(i++, inst.getLaunchTime());
+                update.setString(i++, inst.getVendor());
+                update.setString(i++, inst.getVersionString());
+                update.setString(i++, inst.getVersion());
+                update.setInt(i++, inst.getMajorVersion());
+                update.setString(i++, inst.getOsArch());
+                update.setInt(i++, inst.getProcessors());
+                update.setInt(i++, inst.getHeapMin());
+                update.setInt(i++, inst.getHeapMax());
+                update.setString(i++, details);
+                update.setString(i++, inst.getJavaClassVersion());
+                update.setString(i++, inst.getJavaSpecificationVendor());
+                update.setString(i++, inst.getJavaVendor());
+                update.setString(i++, inst.getJavaVendorVersion());
+                update.setString(i++, inst.getJavaVmName());
+                update.setString(i++, inst.getJavaVmVendor());
+                update.setString(i++, inst.getJvmHeapGcDetails());
+                update.setString(i++, inst.getJvmPid());
+                update.setString(i++, inst.getJvmReportTime());
+                update.setString(i++, inst.getSystemOsName());
+                update.setString(i++, inst.getSystemOsVersion());
+                update.setString(i++, blobs.get(0).getHash());
+                update.setString(i++, blobs.get(1).getHash());
+                update.setString(i++, inst.getJavaCommand());
+                update.setString(i++, blobs.get(2).getHash());
+                update.setString(i++, blobs.get(3).getHash());
+                update.setString(i++, blobs.get(4).getHash());
+                update.setString(i++, inst.getWorkload());
+                update.setBoolean(i++, inst.isOcp());
+                update.setObject(i++, inst.getLastSeen().toOffsetDateTime());
+                update.setString(i++, inst.getFingerprint());
+                update.setString(i++, inst.getLinkingHash());
+                update.setArray(i++, conn.createArrayOf("uuid", jarIds));
+                try (var rs = update.executeQuery()) {
+                  found[0] = rs.next();
+                }
+              }
+            });
+    if (found[0]) {
+      Log.debugf("Refreshed the instance %s", inst.getLinkingHash());
+    }
+    return found[0];
+  }
 
-      ArchiveEntry entry;
-      while ((entry = tarInput.getNextEntry()) != null) {
-        String entryName = entry.getName();
+  /**
+   * An EAP report also fills the EAP tables, which are too much to refresh in place. So an EAP
+   * instance whose report changed is removed with everything it owns, and the report is persisted
+   * as a new instance that keeps the original creation time. Returns false if there is no instance
+   * with the linking hash.
+   */
+  boolean removeStored(JvmInstance inst) {
+    var stored =
+        entityManager
+            .createQuery("FROM JvmInstance WHERE linkingHash = :linkingHash", JvmInstance.class)
+            .setParameter("linkingHash", inst.getLinkingHash())
+            .getResultStream()
+            .findFirst();
+    if (stored.isEmpty()) {
+      return false;
+    }
+    inst.setCreated(stored.get().getCreated());
+    entityManager.remove(stored.get());
+    // The new row takes over the linking hash, so the old one has to be gone first
+    entityManager.flush();
+    Log.debugf("Replacing the instance %s", inst.getLinkingHash());
+    return true;
+  }
 
-        // Skip any file not in our relevant path
-        if (!entryName.contains(insightsDataPath)) {
-          continue;
-        }
+  /**
+   * Links the jars of an update to its instance with a single insert into the join table, without
+   * loading the instance or the jars it already has.
+   */
+  void applyUpdate(UpdateInstance update) {
+    var linkingHash = update.getLinkingHash();
+    var jarIds = jarHashResolver.resolveIds(update.getUpdates()).toArray(UUID[]::new);
+    // The instance may have been persisted earlier in this batch
+    entityManager.flush();
+    unflushed().clear();
+    entityManager
+        .unwrap(Session.class)
+        .doWork(
+            conn -> {
+              try (var insert = conn.prepareStatement(UPDATE_JARS_SQL)) {
+                insert.setString(1, linkingHash);
+                insert.setArray(2, conn.createArrayOf("uuid", jarIds));
+                try (var rs = insert.executeQuery()) {
+                  if (!rs.next()) {
+                    throw new IllegalStateException(
+                        "Update message seen for non-existent hash: " + linkingHash);
+                  }
+                  Log.debugf("Linked %d new jars to %s", rs.getInt(1), linkingHash);
+                }
+              }
+            });
+  }
 
-        // Read in the file stream and turn it into a string for processing
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte[] buffer = new byte[4096];
-        int bytesRead;
-        while ((bytesRead = tarInput.read(buffer)) != -1) {
-          baos.write(buffer, 0, bytesRead);
-        }
-        String json = new String(baos.toByteArray());
-        if (json == null || json.isEmpty()) {
-          continue;
-        }
+  private void recordConsumed(int count, long start) {
+    // FIXME Might need tags
+    registry.timer(BATCH_TIMER_NAME).record(Duration.ofNanos(System.nanoTime() - start));
+    registry.counter(CONSUMED_COUNTER_NAME).increment(count);
+  }
 
-        jsonFiles.add(json);
-      }
-    } catch (IOException e) {
-      e.printStackTrace();
-    }
-    return jsonFiles;
+  /****************************************************************************
+   *                           Utility Methods
+   ***************************************************************************/
+
+  // Tombstones have no value, they are logged as null
+  private static String utf8(byte[] bytes) {
+    return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
   }
 
   static void setHttpClient(HttpClient httpClient) {
@@ -277,43 +765,49 @@ public class EventConsumer {
     EventConsumer.clock = clock;
   }
 
-  static String getJsonFromS3(String urlStr) {
+  /**
+   * Starts downloading an archive. This blocks while the in-flight limit is reached, and the
+   * returned future completes once the whole body has been received.
+   */
+  CompletableFuture<byte[]> fetchFromS3(String urlStr) {
+    HttpRequest request;
     try {
       var uri = new URL(urlStr).toURI();
       var requestBuilder = HttpRequest.newBuilder().uri(uri);
-      var request = requestBuilder.GET().build();
-      Log.debugf("Issuing a HTTP POST request to %s", request);
-
-      if (httpClient == null) {
-        httpClient = HttpClient.newBuilder().build();
-      }
-      var response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
-      Log.debugf("S3 HTTP Client status: %s", response.statusCode());
-
-      return unzipJson(response.body());
-    } catch (URISyntaxException | IOException | InterruptedException e) {
+      request = requestBuilder.GET().build();
+      Log.debugf("Issuing a HTTP GET request to %s", request);
+    } catch (URISyntaxException | IOException e) {
       Log.error("Error in HTTP send: ", e);
       throw new RuntimeException(e);
     }
-  }
 
-  static InputStream getInputStreamFromS3(String urlStr) {
+    if (httpClient == null) {
+      httpClient = HttpClient.newBuilder().build();
+    }
+    inFlight.acquireUninterruptibly();
+    var sample = Timer.start(registry);
     try {
-      var uri = new URL(urlStr).toURI();
-      var requestBuilder = HttpRequest.newBuilder().uri(uri);
-      var request = requestBuilder.GET().build();
-      Log.debugf("Issuing a HTTP POST request to %s", request);
-
-      if (httpClient == null) {
-        httpClient = HttpClient.newBuilder().build();
-      }
-      var response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
-      Log.debugf("S3 HTTP Client status: %s", response.statusCode());
-
-      return response.body();
-    } catch (URISyntaxException | IOException | InterruptedException e) {
+      return httpClient
+          .sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+          .whenComplete(
+              (response, t) -> {
+                inFlight.release();
+                sample.stop(registry.timer(FETCH_TIMER_NAME));
+              })
+          .thenApply(
+              response -> {
+                Log.debugf("S3 HTTP Client status: %s", response.statusCode());
+                // A server error may go away, so the announcement mustn't be claimed as unusable
+                if (response.statusCode() >= 500) {
+                  throw new CompletionException(
+                      new IOException("S3 HTTP Client status: " + response.statusCode()));
+                }
+                return response.body();
+              });
+    } catch (RuntimeException e) {
+      inFlight.release();
       Log.error("Error in HTTP send: ", e);
-      throw new RuntimeException(e);
+      throw e;
     }
   }
 }
@@ -0,0 +1,265 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.redhat.runtimes.inventory.models.EapInstance;
+import com.redhat.runtimes.inventory.models.JarHash;
+import com.redhat.runtimes.inventory.models.JvmInstance;
+import com.redhat.runtimes.inventory.models.TimeOrderedUuidGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Function;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+
+/**
+ * Maps the jars of a decoded report onto the shared rows of {@code jar_hash}, where a jar is
+ * identified by its sha256 checksum, name and version. The jars that haven't been seen before are
+ * inserted in a single statement, and each jar of the report is then replaced by the managed entity
+ * of its row, so persisting the report only writes the join tables.
+ *
+ * <p>The ids of known jars are kept in a bounded cache, and the rows themselves in the second-level
+ * cache, so only the jars missing from the cache cost a trip to the database.
+ */
+@ApplicationScoped
+public class JarHashResolver {
+  private static final String INSERT_SQL =
+      """
+      INSERT INTO jar_hash (id, name, group_id, vendor, version,
+                            sha1checksum, sha256checksum, sha512checksum)
+      SELECT * FROM unnest(?, ?, ?, ?, ?, ?, ?, ?)
+        AS j(id, name, group_id, vendor, version, sha1checksum, sha256checksum, sha512checksum)
+      ON CONFLICT (sha256checksum, name, version) DO NOTHING""";
+
+  private static final String SELECT_SQL =
+      """
+      SELECT jh.id, jh.sha256checksum, jh.name, jh.version FROM jar_hash jh
+      JOIN unnest(?, ?, ?) AS j(sha256checksum, name, version)
+        USING (sha256checksum, name, version)""";
+
+  // Keeps the IN list of the entity query well below the bind parameter limit
+  private static final int LOAD_BATCH_SIZE = 1000;
+
+  // Every transaction inserts jars in the same order, so overlapping inserts can't deadlock
+  private static final Comparator<JarHash> INSERT_ORDER =
+      Comparator.comparing(JarHash::getSha256Checksum, Comparator.nullsFirst(String::compareTo))
+          .thenComparing(JarHash::getName, Comparator.nullsFirst(String::compareTo))
+          .thenComparing(JarHash::getVersion, Comparator.nullsFirst(String::compareTo));
+
+  @Inject EntityManager entityManager;
+
+  @Inject MeterRegistry registry;
+
+  @Inject TransactionSynchronizationRegistry txRegistry;
+
+  // How many jar natural keys are remembered along with the id of their row
+  @ConfigProperty(name = "inventory.jar-hash.cache-size", defaultValue = "100000")
+  long cacheSize;
+
+  private Cache<Key, UUID> ids;
+
+  @PostConstruct
+  public void init() {
+    ids = Caffeine.newBuilder().maximumSize(cacheSize).recordStats().build();
+    CaffeineCacheMetrics.monitor(registry, ids, "jar-hash-ids");
+  }
+
+  // Forgets every cached id, for when jar_hash has been emptied
+  void clearCache() {
+    ids.invalidateAll();
+  }
+
+  /** The natural key of a jar. */
+  record Key(String sha256Checksum, String name, String version) {
+    static Key of(JarHash jar) {
+      return new Key(jar.getSha256Checksum(), jar.getName(), jar.getVersion());
+    }
+  }
+
+  /** Replaces every jar reachable from the instance with its shared row. */
+  public void resolve(JvmInstance inst) {
+    var jars = new ArrayList<JarHash>();
+    addAll(jars, inst.getJarHashes());
+    if (inst instanceof EapInstance eap) {
+      addAll(jars, eap.getJars());
+      addAll(jars, eap.getModules());
+      if (eap.getDeployments() != null) {
+        eap.getDeployments().forEach(dep -> addAll(jars, dep.getArchives()));
+      }
+    }
+    var rows = lookup(jars);
+    inst.setJarHashes(swap(inst.getJarHashes(), rows));
+    if (inst instanceof EapInstance eap) {
+      eap.setJars(swap(eap.getJars(), rows));
+      eap.setModules(swap(eap.getModules(), rows));
+      if (eap.getDeployments() != null) {
+        eap.getDeployments().forEach(dep -> dep.setArchives(swap(dep.getArchives(), rows)));
+      }
+    }
+  }
+
+  /**
+   * Returns the ids of the rows of the given jars without loading them, inserting the rows of the
+   * jars that haven't been seen before.
+   */
+  public Set<UUID> resolveIds(Collection<JarHash> jars) {
+    var out = new HashSet<UUID>();
+    var misses = new ArrayList<JarHash>();
+    for (var entry : distinct(jars).entrySet()) {
+      var id = ids.getIfPresent(entry.getKey());
+      if (id == null) {
+        misses.add(entry.getValue());
+      } else {
+        out.add(id);
+      }
+    }
+    out.addAll(insert(misses).keySet());
+    return out;
+  }
+
+  Map<Key, JarHash> lookup(Collection<JarHash> jars) {
+    var distinct = distinct(jars);
+    var out = new HashMap<Key, JarHash>();
+    var cached = new HashMap<UUID, Key>();
+    var misses = new ArrayList<JarHash>();
+    for (var entry : distinct.entrySet()) {
+      var id = ids.getIfPresent(entry.getKey());
+      if (id == null) {
+        misses.add(entry.getValue());
+      } else {
+        cached.put(id, entry.getKey());
+      }
+    }
+    load(cached.keySet(), out);
+    for (var entry : cached.entrySet()) {
+      // The row of a cached id is gone if it was deleted behind our back
+      if (!out.containsKey(entry.getValue())) {
+        ids.invalidate(entry.getValue());
+        misses.add(distinct.get(entry.getValue()));
+      }
+    }
+    load(insert(misses).keySet(), out);
+    return out;
+  }
+
+  private static Map<Key, JarHash> distinct(Collection<JarHash> jars) {
+    var out = new LinkedHashMap<Key, JarHash>();
+    for (var jar : jars) {
+      out.putIfAbsent(Key.of(jar), jar);
+    }
+    return out;
+  }
+
+  // Inserts the rows of the jars that are missing, and returns the rows of all of them
+  private Map<UUID, Key> insert(List<JarHash> misses) {
+    if (misses.isEmpty()) {
+      return Map.of();
+    }
+    var sorted = new ArrayList<>(misses);
+    sorted.sort(INSERT_ORDER);
+    var found = new HashMap<UUID, Key>();
+    entityManager.unwrap(Session.class).doWork(conn -> upsert(conn, sorted, found));
+    // Every transaction trusts cached ids, so the rows are only cached once they are committed
+    txRegistry.registerInterposedSynchronization(
+        new Synchronization() {
+          @Override
+          public void beforeCompletion() {}
+
+          @Override
+          public void afterCompletion(int status) {
+            if (status == Status.STATUS_COMMITTED) {
+              found.forEach((id, key) -> ids.put(key, id));
+            }
+          }
+        });
+    return found;
+  }
+
+  private void load(Collection<UUID> rowIds, Map<Key, JarHash> out) {
+    if (rowIds.isEmpty()) {
+      return;
+    }
+    // Checks the persistence context and the second-level cache before going to the database
+    entityManager
+        .unwrap(Session.class)
+        .byMultipleIds(JarHash.class)
+        .withBatchSize(LOAD_BATCH_SIZE)
+        .multiLoad(List.copyOf(rowIds))
+        .forEach(
+            row -> {
+              if (row != null) {
+                out.put(Key.of(row), row);
+              }
+            });
+  }
+
+  private static void upsert(Connection conn, Collection<JarHash> jars, Map<UUID, Key> found)
+      throws SQLException {
+    try (var insert = conn.prepareStatement(INSERT_SQL)) {
+      int i = 1;
+      // Ids are time-ordered like the ones of the entities, the ones of conflicting rows are unused
+      insert.setArray(
+          i++,
+          conn.createArrayOf(
+              "uuid", jars.stream().map(jar -> TimeOrderedUuidGenerator.next()).toArray()));
+      insert.setArray(i++, varchars(conn, jars, JarHash::getName));
+      insert.setArray(i++, varchars(conn, jars, JarHash::getGroupId));
+      insert.setArray(i++, varchars(conn, jars, JarHash::getVendor));
+      insert.setArray(i++, varchars(conn, jars, JarHash::getVersion));
+      insert.setArray(i++, varchars(conn, jars, JarHash::getSha1Checksum));
+      insert.setArray(i++, varchars(conn, jars, JarHash::getSha256Checksum));
+      insert.setArray(i++, varchars(conn, jars, JarHash::getSha512Checksum));
+      insert.executeUpdate();
+    }
+    try (var select = conn.prepareStatement(SELECT_SQL)) {
+      select.setArray(1, varchars(conn, jars, JarHash::getSha256Checksum));
+      select.setArray(2, varchars(conn, jars, JarHash::getName));
+      select.setArray(3, varchars(conn, jars, JarHash::getVersion));
+      try (var rs = select.executeQuery()) {
+        while (rs.next()) {
+          found.put(
+              rs.getObject(1, UUID.class),
+              new Key(rs.getString(2), rs.getString(3), rs.getString(4)));
+        }
+      }
+    }
+  }
+
+  private static java.sql.Array varchars(
+      Connection conn, Collection<JarHash> jars, Function<JarHash, String> field)
+      throws SQLException {
+    return conn.createArrayOf("varchar", jars.stream().map(field).toArray(String[]::new));
+  }
+
+  private static void addAll(List<JarHash> out, Collection<JarHash> jars) {
+    if (jars != null) {
+      out.addAll(jars);
+    }
+  }
+
+  private static Set<JarHash> swap(Collection<JarHash> jars, Map<Key, JarHash> rows) {
+    if (jars == null) {
+      return null;
+    }
+    var out = new HashSet<JarHash>();
+    for (var jar : jars) {
+      var row = rows.get(Key.of(jar));
+      if (row == null) {
+        throw new IllegalStateException("No jar_hash row found for " + jar);
+      }
+      out.add(row);
+    }
+    return out;
+  }
+}
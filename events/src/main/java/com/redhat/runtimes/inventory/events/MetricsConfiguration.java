@@ -1,7 +1,7 @@
-/* Copyright (C) Red Hat 2023-2024 */
+/* Copyright (C) Red Hat 2023-2026 */
 package com.redhat.runtimes.inventory.events;
 
-import static com.redhat.runtimes.inventory.events.EventConsumer.CONSUMED_TIMER_NAME;
+import static com.redhat.runtimes.inventory.events.EventConsumer.BATCH_TIMER_NAME;
 
 import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.config.MeterFilter;
@@ -33,7 +33,7 @@ public class MetricsConfiguration {
       @Override
       public DistributionStatisticConfig configure(
           Meter.Id id, DistributionStatisticConfig config) {
-        if (id.getName().startsWith(CONSUMED_TIMER_NAME)) {
+        if (id.getName().startsWith(BATCH_TIMER_NAME)) {
           return DistributionStatisticConfig.builder()
               .percentilesHistogram(true)
               .minimumExpectedValue(minimumExpectedValue * 1_000_000d)
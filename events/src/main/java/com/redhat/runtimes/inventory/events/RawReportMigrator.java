@@ -0,0 +1,95 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import com.redhat.runtimes.inventory.models.CompressedText;
+import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.util.UUID;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+
+/**
+ * Compresses the raw reports of the EAP instances stored before {@code raw_gz} existed. Rows are
+ * moved in small batches, each in its own transaction, so the migration never holds many locks and
+ * several pods can run it side by side.
+ *
+ * <p>Completion is only remembered in memory, per pod: once a batch comes back empty, this pod
+ * stops looking until it restarts. Rows still left with a {@code raw} value (say, written by an
+ * older pod during a rolling deploy) remain readable, and are compressed after the next restart.
+ */
+@ApplicationScoped
+public class RawReportMigrator {
+  private static final String SELECT_SQL =
+      """
+      SELECT id, raw FROM eap_instance
+      WHERE raw IS NOT NULL
+      LIMIT ?
+      FOR UPDATE SKIP LOCKED""";
+
+  private static final String UPDATE_SQL =
+      "UPDATE eap_instance SET raw_gz = ?, raw = NULL WHERE id = ?";
+
+  @Inject EntityManager entityManager;
+
+  // How many rows are compressed per transaction
+  @ConfigProperty(name = "inventory.raw-migration.batch-size", defaultValue = "200")
+  int batchSize;
+
+  // How many batches a single run moves before leaving the rest to the next one
+  @ConfigProperty(name = "inventory.raw-migration.batches-per-run", defaultValue = "50")
+  int batchesPerRun;
+
+  // Set once this pod has seen an empty batch; never persisted
+  private volatile boolean done;
+
+  @Scheduled(
+      every = "${inventory.raw-migration.interval:30s}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void migrate() {
+    if (done) {
+      return;
+    }
+    int total = 0;
+    for (int batch = 0; batch < batchesPerRun; batch++) {
+      int moved = QuarkusTransaction.requiringNew().call(this::migrateBatch);
+      total += moved;
+      if (moved < batchSize) {
+        // Rows locked by another pod are skipped, so only an empty batch means nothing is left
+        done = moved == 0;
+        break;
+      }
+    }
+    if (total > 0) {
+      Log.infof("Compressed the raw report of %d EAP instances", total);
+    }
+  }
+
+  private int migrateBatch() {
+    int[] moved = {0};
+    entityManager
+        .unwrap(Session.class)
+        .doWork(
+            conn -> {
+              try (var select = conn.prepareStatement(SELECT_SQL);
+                  var update = conn.prepareStatement(UPDATE_SQL)) {
+                select.setInt(1, batchSize);
+                try (var rs = select.executeQuery()) {
+                  while (rs.next()) {
+                    update.setBytes(1, CompressedText.compress(rs.getString(2)));
+                    update.setObject(2, rs.getObject(1, UUID.class));
+                    update.addBatch();
+                    moved[0]++;
+                  }
+                }
+                if (moved[0] > 0) {
+                  update.executeBatch();
+                }
+              }
+            });
+    return moved[0];
+  }
+}
@@ -0,0 +1,633 @@
+/* Copyright (C) Red Hat 2023-2026 */
+package com.redhat.runtimes.inventory.events;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.redhat.runtimes.inventory.json.JsonCodecs;
+import com.redhat.runtimes.inventory.models.CompressedText;
+import com.redhat.runtimes.inventory.models.EapConfiguration;
+import com.redhat.runtimes.inventory.models.EapInstance;
+import com.redhat.runtimes.inventory.models.InsightsMessage;
+import com.redhat.runtimes.inventory.models.JarHash;
+import com.redhat.runtimes.inventory.models.JvmInstance;
+import com.redhat.runtimes.inventory.models.UpdateInstance;
+import io.quarkus.logging.Log;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming decoder for the reports uploaded by the runtimes agent. The report is walked token by
+ * token with a {@link JsonParser}: the {@code basic} properties are written straight into the
+ * {@link JvmInstance} fields and the jar lists straight into {@link JarHash} objects, so the only
+ * map built along the way is the {@code details} copy of {@code basic} that we persist as jsonb.
+ */
+public final class ReportDecoder {
+  private static final ObjectReader reader = JsonCodecs.shared().reader();
+  private static final ObjectReader mapReader =
+      JsonCodecs.shared().readerFor(new TypeReference<Map<String, Object>>() {});
+
+  // Every basic property we map onto a column. Missing ones are mapped as if their value was
+  // null, which is what the Map based mapping used to do.
+  private static final List<String> JVM_BASIC_KEYS =
+      List.of(
+          "java.runtime.version",
+          "java.version",
+          "java.vm.specification.vendor",
+          "java.vm.specification.version",
+          "jvm.heap.min",
+          "jvm.heap.max",
+          "jvm.report_time",
+          "system.arch",
+          "system.cores.logical",
+          "system.hostname",
+          "java.class.path",
+          "java.class.version",
+          "java.command",
+          "java.home",
+          "java.library.path",
+          "java.vendor",
+          "java.specification.vendor",
+          "java.vendor.version",
+          "java.vm.name",
+          "java.vm.vendor",
+          "jvm.heap.gc.details",
+          "jvm.pid",
+          "jvm.packages",
+          "jvm.args",
+          "system.os.name",
+          "system.os.version");
+
+  private static final List<String> EAP_BASIC_KEYS =
+      List.of(
+          "app.client.exception",
+          "app.name",
+          "app.transport.cert.https",
+          "app.transport.type.file",
+          "app.transport.type.https",
+          "app.user.dir",
+          "app.user.name");
+
+  private ReportDecoder() {}
+
+  // Every configuration property we map onto a column, including the ones kept as JSON dumps
+  private static final List<String> EAP_CONFIGURATION_KEYS =
+      List.of(
+          "launch-type",
+          "name",
+          "organization",
+          "process-type",
+          "product-name",
+          "product-version",
+          "profile-name",
+          "release-codename",
+          "release-version",
+          "running-mode",
+          "runtime-configuration-state",
+          "server-state",
+          "suspend-state",
+          "socket-binding-group",
+          "path",
+          "interface",
+          "core-service");
+
+  /**
+   * Decodes an uploaded report in a single pass.
+   *
+   * @param announce the announcement the report was downloaded for
+   * @param json the report as uploaded by the agent
+   * @return a {@link JvmInstance}, {@link EapInstance} or {@link UpdateInstance}
+   */
+  public static InsightsMessage decode(ArchiveAnnouncement announce, String json) {
+    try (var parser = reader.createParser(json)) {
+      return decode(announce, () -> CompressedText.compress(json), parser);
+    } catch (IOException | ClassCastException | NumberFormatException e) {
+      Log.error("Error in unmarshalling JSON", e);
+      throw new RuntimeException("Error in unmarshalling JSON", e);
+    }
+  }
+
+  /**
+   * Decodes an uploaded report in a single pass, straight from its UTF-8 bytes.
+   *
+   * @param announce the announcement the report was downloaded for
+   * @param json the report as uploaded by the agent
+   * @return a {@link JvmInstance}, {@link EapInstance} or {@link UpdateInstance}
+   */
+  public static InsightsMessage decode(ArchiveAnnouncement announce, byte[] json) {
+    try (var parser = reader.createParser(json)) {
+      return decode(announce, () -> CompressedText.compress(json), parser);
+    } catch (IOException | ClassCastException | NumberFormatException e) {
+      Log.error("Error in unmarshalling JSON", e);
+      throw new RuntimeException("Error in unmarshalling JSON", e);
+    }
+  }
+
+  /**
+   * Decodes a gzipped report, gunzipping it straight into the parser. EAP instances keep the
+   * compressed report as it is as their raw JSON, so the uncompressed report is never materialised.
+   *
+   * @param announce the announcement the report was downloaded for
+   * @param gzipped the report as uploaded by the agent, still compressed
+   * @return a {@link JvmInstance}, {@link EapInstance} or {@link UpdateInstance}
+   */
+  public static InsightsMessage decodeGzipped(ArchiveAnnouncement announce, byte[] gzipped) {
+    try (var gunzip = new GZIPInputStream(new ByteArrayInputStream(gzipped));
+        var parser = reader.createParser(gunzip)) {
+      return decode(announce, () -> gzipped, parser);
+    } catch (IOException | ClassCastException | NumberFormatException e) {
+      Log.error("Error in unmarshalling JSON", e);
+      throw new RuntimeException("Error in unmarshalling JSON", e);
+    }
+  }
+
+  // rawGz supplies the gzipped report, which is only needed for EAP instances
+  static InsightsMessage decode(ArchiveAnnouncement announce, Supplier<byte[]> rawGz, JsonParser p)
+      throws IOException {
+    if (p.nextToken() != START_OBJECT) {
+      throw new RuntimeException("Error in unmarshalling JSON - report is not a JSON object");
+    }
+
+    String linkingHash = null;
+    TokenBuffer basic = null;
+    Set<JarHash> jars = null;
+    JvmDetails details = null;
+    EapInstance eap = null;
+    UpdateInstance update = null;
+
+    while (p.nextToken() == FIELD_NAME) {
+      var name = p.currentName();
+      p.nextToken();
+      switch (name) {
+        case "idHash" -> linkingHash = p.getValueAsString();
+        case "basic" -> {
+          // We only learn whether this is an EAP instance once we see the "eap" section, so the
+          // basic tokens are kept aside and replayed onto the right entity at the end
+          basic = new TokenBuffer(p);
+          basic.copyCurrentStructure(p);
+        }
+        case "jars" -> jars = readJarHashes(p);
+        case "details" -> details = readDetails(p);
+        case "eap" -> {
+          // An explicit null is a plain JVM report, as if the section were absent
+          if (p.currentToken() != VALUE_NULL) {
+            eap = new EapInstance();
+            readEap(p, eap);
+          }
+        }
+        case "updated-jars" -> update = readUpdate(p);
+        default -> p.skipChildren();
+      }
+    }
+
+    if (basic == null) {
+      if (update != null) {
+        return update;
+      }
+      throw new RuntimeException(
+          "Error in unmarshalling JSON - does not contain a basic or updated-jars tag");
+    }
+
+    JvmInstance inst = eap != null ? eap : new JvmInstance();
+    // Announce fields first
+    inst.setAccountId(announce.getAccountId());
+    inst.setOrgId(announce.getOrgId());
+    inst.setCreated(announce.getTimestamp().atZone(ZoneOffset.UTC));
+    inst.setLastSeen(inst.getCreated());
+    inst.setLinkingHash(linkingHash);
+    try (var basicParser = basic.asParser()) {
+      basicParser.nextToken();
+      readBasic(basicParser, inst);
+    }
+    inst.setJarHashes(jars == null ? Set.of() : jars);
+
+    if (eap != null) {
+      eap.setRawCompressed(rawGz.get());
+      eap.setWorkload("EAP");
+    } else if (details != null) {
+      if (details.workload != null) {
+        inst.setWorkload(details.workload);
+      }
+      inst.setOcp(details.ocp);
+    }
+
+    inst.sanitize();
+    return inst;
+  }
+
+  /****************************************************************************
+   *                             Basic properties
+   ***************************************************************************/
+  static void readBasic(JsonParser p, JvmInstance inst) throws IOException {
+    if (p.currentToken() != START_OBJECT) {
+      throw new RuntimeException("Error in unmarshalling JSON - basic is not a JSON object");
+    }
+    // The full set of basic properties is kept as the instance details
+    var basic = new LinkedHashMap<String, Object>();
+    while (p.nextToken() == FIELD_NAME) {
+      var key = p.currentName();
+      var value = readValue(p, p.nextToken());
+      basic.put(key, value);
+      mapBasicValue(inst, key, value);
+    }
+    for (var key : JVM_BASIC_KEYS) {
+      if (!basic.containsKey(key)) {
+        mapBasicValue(inst, key, null);
+      }
+    }
+    if (inst instanceof EapInstance eap) {
+      for (var key : EAP_BASIC_KEYS) {
+        if (!basic.containsKey(key)) {
+          mapBasicValue(inst, key, null);
+        }
+      }
+      eap.setOcp(
+          basic.containsKey("is_ocp") && Boolean.parseBoolean(asString(basic.get("is_ocp"))));
+    }
+    inst.setDetails(basic);
+  }
+
+  static void mapBasicValue(JvmInstance inst, String key, Object value) {
+    switch (key) {
+      case "java.runtime.version" -> inst.setVersionString(asString(value));
+      case "java.version" -> inst.setVersion(asString(value));
+      case "java.vm.specification.vendor" -> inst.setVendor(asString(value));
+      case "java.vm.specification.version" -> {
+        var strVersion = asString(value);
+        // Handle Java 8
+        if (strVersion.startsWith("1.")) {
+          strVersion = strVersion.substring(2);
+        }
+        inst.setMajorVersion(Integer.parseInt(strVersion));
+      }
+      case "jvm.heap.min" -> inst.setHeapMin(asHeapSize(value));
+      case "jvm.heap.max" -> inst.setHeapMax(asHeapSize(value));
+      case "jvm.report_time" -> {
+        var reportTime = asString(value);
+        inst.setLaunchTime(Long.parseLong(reportTime));
+        inst.setJvmReportTime(reportTime);
+      }
+      case "system.arch" -> inst.setOsArch(asString(value));
+      case "system.cores.logical" -> inst.setProcessors(
+          value instanceof Integer i ? i : Integer.parseInt(asString(value)));
+      case "system.hostname" -> inst.setHostname(asString(value));
+      case "java.class.path" -> inst.setJavaClassPath(asString(value));
+      case "java.class.version" -> inst.setJavaClassVersion(asString(value));
+      case "java.command" -> inst.setJavaCommand(asString(value));
+      case "java.home" -> inst.setJavaHome(asString(value));
+      case "java.library.path" -> inst.setJavaLibraryPath(asString(value));
+      case "java.vendor" -> inst.setJavaVendor(asString(value));
+      case "java.specification.vendor" -> inst.setJavaSpecificationVendor(asString(value));
+      case "java.vendor.version" -> inst.setJavaVendorVersion(asString(value));
+      case "java.vm.name" -> inst.setJavaVmName(asString(value));
+      case "java.vm.vendor" -> inst.setJavaVmVendor(asString(value));
+      case "jvm.heap.gc.details" -> inst.setJvmHeapGcDetails(asString(value));
+      case "jvm.pid" -> inst.setJvmPid(asString(value));
+      case "jvm.packages" -> inst.setJvmPackages(asString(value));
+      case "jvm.args" -> inst.setJvmArgs(asString(value));
+      case "system.os.name" -> inst.setSystemOsName(asString(value));
+      case "system.os.version" -> inst.setSystemOsVersion(asString(value));
+      default -> {
+        if (inst instanceof EapInstance eap) {
+          mapEapBasicValue(eap, key, value);
+        }
+      }
+    }
+  }
+
+  static void mapEapBasicValue(EapInstance inst, String key, Object value) {
+    switch (key) {
+      case "app.client.exception" -> inst.setAppClientException(asString(value));
+      case "app.name" -> inst.setAppName(asString(value));
+      case "app.transport.cert.https" -> inst.setAppTransportCertHttps(asString(value));
+      case "app.transport.type.file" -> inst.setAppTransportTypeFile(asString(value));
+      case "app.transport.type.https" -> inst.setAppTransportTypeHttps(asString(value));
+      case "app.user.dir" -> inst.setAppUserDir(asString(value));
+      case "app.user.name" -> inst.setAppUserName(asString(value));
+      default -> {}
+    }
+  }
+
+  /****************************************************************************
+   *                             Jars
+   ***************************************************************************/
+
+  // Looks like:
+  // { "version" : "...",
+  //   "jars"    : [ { ... }, ... ] }
+  static Set<JarHash> readJarHashes(JsonParser p) throws IOException {
+    var out = new HashSet<JarHash>();
+    if (p.currentToken() != START_OBJECT) {
+      p.skipChildren();
+      return out;
+    }
+    while (p.nextToken() == FIELD_NAME) {
+      var name = p.currentName();
+      if (p.nextToken() == START_ARRAY && "jars".equals(name)) {
+        while (p.nextToken() != END_ARRAY) {
+          out.add(readJarHash(p));
+        }
+      } else {
+        p.skipChildren();
+      }
+    }
+    return out;
+  }
+
+  // Looks like:
+  // { "name"       : "...",
+  //   "version"    : "...",
+  //   "attributes" : { "groupId" : "...", "sha1Checksum" : "...", ... } }
+  static JarHash readJarHash(JsonParser p) throws IOException {
+    var out = new JarHash();
+    out.setName("");
+    out.setVersion("");
+    out.setGroupId("");
+    out.setVendor("");
+    out.setSha1Checksum("");
+    out.setSha256Checksum("");
+    out.setSha512Checksum("");
+    if (p.currentToken() != START_OBJECT) {
+      throw new ClassCastException("Jar entry is not a JSON object: " + p.currentToken());
+    }
+    while (p.nextToken() == FIELD_NAME) {
+      var name = p.currentName();
+      var token = p.nextToken();
+      switch (name) {
+        case "name" -> out.setName(p.getValueAsString());
+        case "version" -> out.setVersion(p.getValueAsString());
+        case "attributes" -> {
+          if (token != START_OBJECT) {
+            p.skipChildren();
+            continue;
+          }
+          while (p.nextToken() == FIELD_NAME) {
+            var attr = p.currentName();
+            p.nextToken();
+            switch (attr) {
+              case "groupId" -> out.setGroupId(p.getValueAsString());
+              case "Implementation-Vendor" -> out.setVendor(p.getValueAsString());
+              case "sha1Checksum" -> out.setSha1Checksum(p.getValueAsString());
+              case "sha256Checksum" -> out.setSha256Checksum(p.getValueAsString());
+              case "sha512Checksum" -> out.setSha512Checksum(p.getValueAsString());
+              default -> p.skipChildren();
+            }
+          }
+        }
+        default -> p.skipChildren();
+      }
+    }
+    return out;
+  }
+
+  /****************************************************************************
+   *                             Other sections
+   ***************************************************************************/
+  static JvmDetails readDetails(JsonParser p) throws IOException {
+    var out = new JvmDetails();
+    if (p.currentToken() != START_OBJECT) {
+      p.skipChildren();
+      return null;
+    }
+    // FIXME This is a workaround - for the first release of the agent in Cryostat
+    // we didn't have the is_ocp field. So we'll have to assume that if this payload
+    // came from an agent and the field's not there, it's from OCP.
+    // This should be fixed in the next release of the agent in Cryostat.
+    out.ocp = true;
+    while (p.nextToken() == FIELD_NAME) {
+      var name = p.currentName();
+      var token = p.nextToken();
+      switch (name) {
+        case "workloadType" -> out.workload = asNullableString(readValue(p, token));
+        case "is_ocp" -> out.ocp = Boolean.parseBoolean(asString(readValue(p, token)));
+        default -> p.skipChildren();
+      }
+    }
+    return out;
+  }
+
+  static UpdateInstance readUpdate(JsonParser p) throws IOException {
+    String linkingHash = null;
+    var jars = new ArrayList<JarHash>();
+    while (p.nextToken() == FIELD_NAME) {
+      var name = p.currentName();
+      var token = p.nextToken();
+      if ("idHash".equals(name)) {
+        linkingHash = p.getValueAsString();
+      } else if ("jars".equals(name) && token == START_ARRAY) {
+        while (p.nextToken() != END_ARRAY) {
+          jars.add(readJarHash(p));
+        }
+      } else {
+        p.skipChildren();
+      }
+    }
+    return new UpdateInstance(linkingHash, jars);
+  }
+
+  @SuppressWarnings("unchecked")
+  static void readEap(JsonParser p, EapInstance inst) throws IOException {
+    if (p.currentToken() != START_OBJECT) {
+      throw new RuntimeException(
+          "Error in unmarshalling JSON - is an EapInstance without an eap definition.");
+    }
+    EapConfiguration config = null;
+    List<Map<String, Object>> depRep = null;
+    while (p.nextToken() == FIELD_NAME) {
+      var name = p.currentName();
+      var token = p.nextToken();
+      switch (name) {
+        case "eap-version" -> inst.setEapVersion(asString(readValue(p, token)));
+        case "eap-installation" -> {
+          var eapRepInstall = mapReader.<Map<String, Object>>readValue(p);
+          if (eapRepInstall != null) {
+            // TODO: I don't like this [boolean of string of] stuff.
+            //       Figure out a better way to do that.
+            inst.setEapXp(Boolean.valueOf(String.valueOf(eapRepInstall.get("eap-xp"))));
+            inst.setEapYamlExtension(
+                Boolean.valueOf(String.valueOf(eapRepInstall.get("yaml-extension"))));
+            inst.setEapBootableJar(
+                Boolean.valueOf(String.valueOf(eapRepInstall.get("bootable-jar"))));
+            inst.setEapUseGit(Boolean.valueOf(String.valueOf(eapRepInstall.get("use-git"))));
+          }
+        }
+        case "eap-modules" -> inst.setModules(readJarHashes(p));
+        case "eap-configuration" -> config = readEapConfiguration(p, inst);
+        case "eap-deployments" -> {
+          var eapDepRep = mapReader.<Map<String, Object>>readValue(p);
+          if (eapDepRep != null) {
+            depRep = (List<Map<String, Object>>) eapDepRep.get("deployments");
+          }
+        }
+        default -> p.skipChildren();
+      }
+    }
+    if (inst.getEapVersion() == null) {
+      inst.setEapVersion("null");
+    }
+    if (inst.getModules() == null) {
+      inst.setModules(Set.of());
+    }
+    if (config == null) {
+      throw new RuntimeException(
+          "Error in unmarshalling JSON - is an EapInstance without an eap-configuration.");
+    }
+    inst.setConfiguration(config);
+    inst.setDeployments(Utils.eapDeploymentsOf(inst, depRep));
+  }
+
+  /**
+   * Reads the {@code eap-configuration} section. The sections we keep as JSON dumps are copied
+   * token by token from the report into their string, so they are never built into maps and
+   * serialized again. Returns null if the section is null.
+   */
+  static EapConfiguration readEapConfiguration(JsonParser p, EapInstance inst) throws IOException {
+    if (p.currentToken() == VALUE_NULL) {
+      return null;
+    }
+    if (p.currentToken() != START_OBJECT) {
+      throw new RuntimeException(
+          "Error in unmarshalling JSON - eap-configuration is not a JSON object");
+    }
+    var config = new EapConfiguration();
+    config.setEapInstance(inst);
+    // Missing properties are stored the way String.valueOf(null) and a null dump render them
+    for (var key : EAP_CONFIGURATION_KEYS) {
+      mapConfigurationValue(config, key, "null");
+    }
+    config.setExtensions(new HashSet<>());
+    var subsystems = new HashMap<String, String>();
+    var deployments = new HashMap<String, String>();
+    String version = null;
+    while (p.nextToken() == FIELD_NAME) {
+      var name = p.currentName();
+      var token = p.nextToken();
+      if ("version".equals(name)) {
+        version = asString(readValue(p, token));
+      } else if ("configuration".equals(name) && token == START_OBJECT) {
+        while (p.nextToken() == FIELD_NAME) {
+          var key = p.currentName();
+          token = p.nextToken();
+          switch (key) {
+            case "extension" -> {
+              var extensionsRep = mapReader.<Map<String, Map<String, Object>>>readValue(p);
+              if (extensionsRep != null) {
+                config.setExtensions(Utils.eapExtensionsOf(extensionsRep));
+              }
+            }
+            case "subsystem" -> readDumps(p, subsystems);
+            case "deployment" -> readDumps(p, deployments);
+            case "socket-binding-group",
+                "path",
+                "interface",
+                "core-service" -> mapConfigurationValue(config, key, copyJson(p));
+            default -> {
+              if (EAP_CONFIGURATION_KEYS.contains(key)) {
+                mapConfigurationValue(config, key, asString(readValue(p, token)));
+              } else {
+                p.skipChildren();
+              }
+            }
+          }
+        }
+      } else {
+        p.skipChildren();
+      }
+    }
+    config.setSubsystems(subsystems);
+    config.setDeployments(deployments);
+    config.setVersion(String.valueOf(version));
+    return config;
+  }
+
+  private static void mapConfigurationValue(EapConfiguration config, String key, String value) {
+    switch (key) {
+      case "launch-type" -> config.setLaunchType(value);
+      case "name" -> config.setName(value);
+      case "organization" -> config.setOrganization(value);
+      case "process-type" -> config.setProcessType(value);
+      case "product-name" -> config.setProductName(value);
+      case "product-version" -> config.setProductVersion(value);
+      case "profile-name" -> config.setProfileName(value);
+      case "release-codename" -> config.setReleaseCodename(value);
+      case "release-version" -> config.setReleaseVersion(value);
+      case "running-mode" -> config.setRunningMode(value);
+      case "runtime-configuration-state" -> config.setRuntimeConfigurationState(value);
+      case "server-state" -> config.setServerState(value);
+      case "suspend-state" -> config.setSuspendState(value);
+      case "socket-binding-group" -> config.setSocketBindingGroups(value);
+      case "path" -> config.setPaths(value);
+      case "interface" -> config.setInterfaces(value);
+      case "core-service" -> config.setCoreServices(value);
+      default -> {}
+    }
+  }
+
+  // Copies each member of the current object as its own JSON dump
+  private static void readDumps(JsonParser p, Map<String, String> out) throws IOException {
+    if (p.currentToken() != START_OBJECT) {
+      p.skipChildren();
+      return;
+    }
+    while (p.nextToken() == FIELD_NAME) {
+      var key = p.currentName();
+      p.nextToken();
+      out.put(key, copyJson(p));
+    }
+  }
+
+  // Writes the current value out as compact JSON, the way the mapper would have serialized it
+  private static String copyJson(JsonParser p) throws IOException {
+    var out = new StringWriter();
+    try (var gen = reader.getFactory().createGenerator(out)) {
+      gen.copyCurrentStructure(p);
+    }
+    return out.toString();
+  }
+
+  /****************************************************************************
+   *                             Utility Methods
+   ***************************************************************************/
+
+  // Reads the current value the same way an untyped Map deserialization would
+  private static Object readValue(JsonParser p, JsonToken token) throws IOException {
+    return switch (token) {
+      case VALUE_STRING -> p.getText();
+      case VALUE_NUMBER_INT -> p.getNumberValue();
+      case VALUE_NUMBER_FLOAT -> p.getDoubleValue();
+      case VALUE_TRUE -> Boolean.TRUE;
+      case VALUE_FALSE -> Boolean.FALSE;
+      case VALUE_NULL -> null;
+      default -> p.readValueAs(Object.class);
+    };
+  }
+
+  private static String asString(Object value) {
+    return String.valueOf(value);
+  }
+
+  private static String asNullableString(Object value) {
+    return value == null ? null : String.valueOf(value);
+  }
+
+  private static int asHeapSize(Object value) {
+    if (value instanceof Number n) {
+      return (int) n.doubleValue();
+    }
+    return (int) Double.parseDouble(asString(value));
+  }
+
+  static final class JvmDetails {
+    String workload;
+    boolean ocp;
+  }
+}
@@ -0,0 +1,123 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import com.redhat.runtimes.inventory.models.EapConfiguration;
+import com.redhat.runtimes.inventory.models.EapInstance;
+import com.redhat.runtimes.inventory.models.JarHash;
+import com.redhat.runtimes.inventory.models.JvmInstance;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Computes a stable digest of the parts of a report that matter, so a report that only differs from
+ * the stored one in its timestamps can be recognised without comparing it field by field.
+ */
+public final class ReportFingerprint {
+  // Basic properties that change with every report of the same JVM
+  static final Set<String> VOLATILE_KEYS = Set.of("jvm.report_time");
+
+  private ReportFingerprint() {}
+
+  /**
+   * Returns the hex encoded SHA-256 of the basic properties, workload and jars of the report, and
+   * for an EAP report of everything it stores from its eap section.
+   */
+  public static String of(JvmInstance inst) {
+    var digest = sha256();
+    if (inst.getDetails() != null) {
+      for (var entry : new TreeMap<>(inst.getDetails()).entrySet()) {
+        if (!VOLATILE_KEYS.contains(entry.getKey())) {
+          update(digest, entry.getKey(), String.valueOf(entry.getValue()));
+        }
+      }
+    }
+    update(digest, "workload", inst.getWorkload());
+    update(digest, "ocp", String.valueOf(inst.isOcp()));
+    updateJars(digest, "jars", inst.getJarHashes());
+    if (inst instanceof EapInstance eap) {
+      update(digest, "eap-version", eap.getEapVersion());
+      update(digest, "eap-xp", String.valueOf(eap.getEapXp()));
+      update(digest, "yaml-extension", String.valueOf(eap.getEapYamlExtension()));
+      update(digest, "bootable-jar", String.valueOf(eap.getEapBootableJar()));
+      update(digest, "use-git", String.valueOf(eap.getEapUseGit()));
+      updateConfiguration(digest, eap.getConfiguration());
+      updateJars(digest, "eap-jars", eap.getJars());
+      updateJars(digest, "eap-modules", eap.getModules());
+      if (eap.getDeployments() != null) {
+        var deployments = new TreeMap<String, Collection<JarHash>>();
+        eap.getDeployments().forEach(dep -> deployments.put(dep.getName(), dep.getArchives()));
+        deployments.forEach((name, archives) -> updateJars(digest, "deployment:" + name, archives));
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private static void updateConfiguration(MessageDigest digest, EapConfiguration config) {
+    if (config == null) {
+      return;
+    }
+    update(digest, "version", config.getVersion());
+    update(digest, "launch-type", config.getLaunchType());
+    update(digest, "name", config.getName());
+    update(digest, "organization", config.getOrganization());
+    update(digest, "process-type", config.getProcessType());
+    update(digest, "product-name", config.getProductName());
+    update(digest, "product-version", config.getProductVersion());
+    update(digest, "profile-name", config.getProfileName());
+    update(digest, "release-codename", config.getReleaseCodename());
+    update(digest, "release-version", config.getReleaseVersion());
+    update(digest, "running-mode", config.getRunningMode());
+    update(digest, "runtime-configuration-state", config.getRuntimeConfigurationState());
+    update(digest, "server-state", config.getServerState());
+    update(digest, "suspend-state", config.getSuspendState());
+    update(digest, "socket-binding-group", config.getSocketBindingGroups());
+    update(digest, "path", config.getPaths());
+    update(digest, "interface", config.getInterfaces());
+    update(digest, "core-service", config.getCoreServices());
+    updateDumps(digest, "subsystem:", config.getSubsystems());
+    updateDumps(digest, "deployment-dump:", config.getDeployments());
+    if (config.getExtensions() != null) {
+      var extensions = new TreeSet<String>();
+      config.getExtensions().forEach(ext -> extensions.add(ext.contentHash()));
+      extensions.forEach(hash -> update(digest, "extension", hash));
+    }
+  }
+
+  private static void updateDumps(MessageDigest digest, String section, Map<String, String> dumps) {
+    if (dumps != null) {
+      new TreeMap<>(dumps).forEach((name, dump) -> update(digest, section + name, dump));
+    }
+  }
+
+  private static void updateJars(MessageDigest digest, String section, Collection<JarHash> jars) {
+    if (jars == null) {
+      return;
+    }
+    var keys = new ArrayList<String>(jars.size());
+    for (var jar : jars) {
+      keys.add(jar.getSha256Checksum() + '\0' + jar.getName() + '\0' + jar.getVersion());
+    }
+    Collections.sort(keys);
+    for (var key : keys) {
+      update(digest, section, key);
+    }
+  }
+
+  // Separators keep the boundaries between keys and values from being ambiguous
+  private static void update(MessageDigest digest, String key, String value) {
+    digest.update(key.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) '\n');
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
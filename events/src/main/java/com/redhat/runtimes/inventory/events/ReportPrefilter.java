@@ -0,0 +1,93 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.redhat.runtimes.inventory.json.JsonCodecs;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Clock;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decides from the first few tokens of a report whether {@link Utils#shouldProcessMessage} would
+ * reject it, so stale reports are dropped without being decoded in full. The report is streamed
+ * only as far as {@code basic.jvm.report_time}, or to its end for reports without a {@code basic}
+ * section.
+ *
+ * <p>A report is only skipped when the answer is certain. Anything the scan doesn't understand is
+ * left to the decoder, which reports the error as it always did.
+ */
+final class ReportPrefilter {
+  private static final ObjectReader reader = JsonCodecs.shared().reader();
+
+  private ReportPrefilter() {}
+
+  /** Whether the report, given as its UTF-8 bytes, can be dropped without decoding it. */
+  static boolean skip(byte[] json, Clock clock, boolean isEgg) {
+    try (var parser = reader.createParser(json)) {
+      return skip(parser, clock, isEgg);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /** Whether the gzipped report can be dropped without decoding it. */
+  static boolean skipGzipped(byte[] gzipped, Clock clock, boolean isEgg) {
+    try (var gunzip = new GZIPInputStream(new ByteArrayInputStream(gzipped));
+        var parser = reader.createParser(gunzip)) {
+      return skip(parser, clock, isEgg);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  static boolean skip(JsonParser p, Clock clock, boolean isEgg) throws IOException {
+    if (p.nextToken() != START_OBJECT) {
+      return false;
+    }
+    boolean update = false;
+    while (p.nextToken() == FIELD_NAME) {
+      var name = p.currentName();
+      p.nextToken();
+      switch (name) {
+        case "basic" -> {
+          // The decoder ignores updated-jars once there is a basic section
+          var reportTime = reportTimeOf(p);
+          return reportTime != null && Utils.isStale(reportTime, clock);
+        }
+        case "updated-jars" -> {
+          update = true;
+          p.skipChildren();
+        }
+        default -> p.skipChildren();
+      }
+    }
+    // Updates from egg files are ignored
+    return update && isEgg;
+  }
+
+  private static Long reportTimeOf(JsonParser p) throws IOException {
+    if (p.currentToken() != START_OBJECT) {
+      return null;
+    }
+    while (p.nextToken() == FIELD_NAME) {
+      var key = p.currentName();
+      var token = p.nextToken();
+      if ("jvm.report_time".equals(key)) {
+        if (token != VALUE_NUMBER_INT && token != VALUE_STRING) {
+          return null;
+        }
+        try {
+          return Long.parseLong(p.getValueAsString());
+        } catch (NumberFormatException e) {
+          return null;
+        }
+      }
+      p.skipChildren();
+    }
+    return null;
+  }
+}
@@ -0,0 +1,116 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.redhat.runtimes.inventory.models.JvmInstance;
+import com.redhat.runtimes.inventory.models.TextBlob;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import java.util.*;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+
+/**
+ * Stores the large text values of a decoded report in {@code text_blob}, where each value is kept
+ * once under the hash of its content. The values that aren't stored yet are inserted in a single
+ * statement, and the instance is then pointed at the rows by reference, so persisting it only
+ * writes the hashes.
+ *
+ * <p>The hashes known to be stored are kept in a bounded cache, so the values of an application
+ * that keeps reporting never go to the database again. Only the hashes are kept there; the values
+ * themselves can be large, so just a few hot rows are in the second-level cache for the readers.
+ */
+@ApplicationScoped
+public class TextBlobResolver {
+  private static final String INSERT_SQL =
+      """
+      INSERT INTO text_blob (hash, content)
+      SELECT * FROM unnest(?::varchar[], ?::text[])
+      ON CONFLICT (hash) DO NOTHING""";
+
+  @Inject EntityManager entityManager;
+
+  @Inject MeterRegistry registry;
+
+  @Inject TransactionSynchronizationRegistry txRegistry;
+
+  // How many hashes of stored values are remembered
+  @ConfigProperty(name = "inventory.text-blob.cache-size", defaultValue = "100000")
+  long cacheSize;
+
+  private Cache<String, Boolean> stored;
+
+  @PostConstruct
+  public void init() {
+    stored = Caffeine.newBuilder().maximumSize(cacheSize).recordStats().build();
+    CaffeineCacheMetrics.monitor(registry, stored, "text-blob-hashes");
+  }
+
+  // Forgets every cached hash, for when text_blob has been emptied
+  void clearCache() {
+    stored.invalidateAll();
+  }
+
+  /**
+   * Stores the text values of the instance, including the configuration dumps of an EAP instance,
+   * and points it at their rows.
+   */
+  public void resolve(JvmInstance inst) {
+    store(inst.textBlobs());
+    var session = entityManager.unwrap(Session.class);
+    inst.swapTextBlobs(blob -> session.getReference(TextBlob.class, blob.getHash()));
+  }
+
+  /** Stores the given value if it isn't stored yet, and returns its hash. */
+  public String store(String content) {
+    var blob = TextBlob.of(content);
+    store(List.of(blob));
+    return blob.getHash();
+  }
+
+  void store(Collection<TextBlob> blobs) {
+    // Every transaction inserts blobs in hash order, so overlapping inserts can't deadlock
+    var missing = new TreeMap<String, String>();
+    for (var blob : blobs) {
+      if (stored.getIfPresent(blob.getHash()) == null) {
+        missing.putIfAbsent(blob.getHash(), blob.getContent());
+      }
+    }
+    if (missing.isEmpty()) {
+      return;
+    }
+    entityManager
+        .unwrap(Session.class)
+        .doWork(
+            conn -> {
+              try (var insert = conn.prepareStatement(INSERT_SQL)) {
+                insert.setArray(
+                    1, conn.createArrayOf("varchar", missing.keySet().toArray(String[]::new)));
+                insert.setArray(
+                    2, conn.createArrayOf("text", missing.values().toArray(String[]::new)));
+                insert.executeUpdate();
+              }
+            });
+    // Every transaction trusts cached hashes, so the rows are only cached once they are committed
+    txRegistry.registerInterposedSynchronization(
+        new Synchronization() {
+          @Override
+          public void beforeCompletion() {}
+
+          @Override
+          public void afterCompletion(int status) {
+            if (status == Status.STATUS_COMMITTED) {
+              missing.keySet().forEach(hash -> stored.put(hash, Boolean.TRUE));
+            }
+          }
+        });
+  }
+}
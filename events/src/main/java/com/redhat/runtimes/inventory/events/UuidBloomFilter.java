@@ -0,0 +1,52 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe Bloom filter of ids. It can tell that an id was definitely never added, or that it
+ * might have been - about 1% of the ids that were never added are reported as maybe added, as long
+ * as no more than the expected number of ids are.
+ */
+final class UuidBloomFilter {
+  private static final double FALSE_POSITIVE_RATE = 0.01;
+
+  private final AtomicLongArray words;
+  private final long bitCount;
+  private final int hashCount;
+
+  UuidBloomFilter(long expected) {
+    expected = Math.max(1, expected);
+    // The optimal sizes are m = -n ln(p) / ln(2)^2 bits and k = (m / n) ln(2) hashes
+    long bits =
+        (long) Math.ceil(-expected * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2)));
+    words = new AtomicLongArray((int) Math.max(1, (bits + 63) / 64));
+    bitCount = words.length() * 64L;
+    hashCount = (int) Math.max(1, Math.round((double) bits / expected * Math.log(2)));
+  }
+
+  void add(UUID id) {
+    for (int i = 0; i < hashCount; i++) {
+      long bit = bitOf(id, i);
+      long mask = 1L << (bit & 63);
+      words.getAndAccumulate((int) (bit >>> 6), mask, (word, m) -> word | m);
+    }
+  }
+
+  boolean mightContain(UUID id) {
+    for (int i = 0; i < hashCount; i++) {
+      long bit = bitOf(id, i);
+      if ((words.get((int) (bit >>> 6)) & (1L << (bit & 63))) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // The ids are already hashes, so their two halves serve for double hashing
+  private long bitOf(UUID id, int i) {
+    long combined = id.getMostSignificantBits() + i * (id.getLeastSignificantBits() | 1);
+    return Math.floorMod(combined, bitCount);
+  }
+}
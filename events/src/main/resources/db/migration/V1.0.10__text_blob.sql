@@ -0,0 +1,47 @@
+-- This script moves the large text values of jvm_instance into text_blob, where each value is
+-- stored once under the hex encoded SHA-256 of its UTF-8 encoding and shared by every instance
+-- that reports it.
+
+CREATE TABLE public.text_blob(
+    hash character varying(64) NOT NULL,
+    content text NOT NULL,
+    PRIMARY KEY (hash)
+);
+
+INSERT INTO text_blob (hash, content)
+  SELECT encode(sha256(convert_to(v.content, 'UTF8')), 'hex'), v.content
+  FROM jvm_instance i,
+    LATERAL (VALUES (i.java_home), (i.java_library_path), (i.java_class_path),
+                    (i.jvm_packages), (i.jvm_args)) AS v(content)
+  ON CONFLICT DO NOTHING;
+
+ALTER TABLE IF EXISTS jvm_instance
+  ADD COLUMN java_home_hash character varying(64),
+  ADD COLUMN java_library_path_hash character varying(64),
+  ADD COLUMN java_class_path_hash character varying(64),
+  ADD COLUMN jvm_packages_hash character varying(64),
+  ADD COLUMN jvm_args_hash character varying(64);
+
+UPDATE jvm_instance SET
+  java_home_hash = encode(sha256(convert_to(java_home, 'UTF8')), 'hex'),
+  java_library_path_hash = encode(sha256(convert_to(java_library_path, 'UTF8')), 'hex'),
+  java_class_path_hash = encode(sha256(convert_to(java_class_path, 'UTF8')), 'hex'),
+  jvm_packages_hash = encode(sha256(convert_to(jvm_packages, 'UTF8')), 'hex'),
+  jvm_args_hash = encode(sha256(convert_to(jvm_args, 'UTF8')), 'hex');
+
+ALTER TABLE IF EXISTS jvm_instance
+  ALTER COLUMN java_home_hash SET NOT NULL,
+  ALTER COLUMN java_library_path_hash SET NOT NULL,
+  ALTER COLUMN java_class_path_hash SET NOT NULL,
+  ALTER COLUMN jvm_packages_hash SET NOT NULL,
+  ALTER COLUMN jvm_args_hash SET NOT NULL,
+  ADD CONSTRAINT FK_JAVA_HOME FOREIGN KEY (java_home_hash) REFERENCES text_blob (hash),
+  ADD CONSTRAINT FK_JAVA_LIBRARY_PATH FOREIGN KEY (java_library_path_hash) REFERENCES text_blob (hash),
+  ADD CONSTRAINT FK_JAVA_CLASS_PATH FOREIGN KEY (java_class_path_hash) REFERENCES text_blob (hash),
+  ADD CONSTRAINT FK_JVM_PACKAGES FOREIGN KEY (jvm_packages_hash) REFERENCES text_blob (hash),
+  ADD CONSTRAINT FK_JVM_ARGS FOREIGN KEY (jvm_args_hash) REFERENCES text_blob (hash),
+  DROP COLUMN java_home,
+  DROP COLUMN java_library_path,
+  DROP COLUMN java_class_path,
+  DROP COLUMN jvm_packages,
+  DROP COLUMN jvm_args;
@@ -0,0 +1,44 @@
+-- This script turns eap_extension into a catalog: an extension is identified by the digest of its
+-- module and subsystem versions, and a single row is shared by every configuration that has it.
+
+ALTER TABLE IF EXISTS eap_extension
+  ADD COLUMN content_hash character varying(64);
+
+-- Must match EapExtension.contentHashOf: the module followed by the subsystem names and versions,
+-- sorted by name then version, each on its own line
+UPDATE eap_extension e SET content_hash = encode(sha256(convert_to(
+  e.module || coalesce(
+    (SELECT string_agg(E'\n' || s.name || E'\n' || s.version, ''
+                       ORDER BY s.name COLLATE "C", s.version COLLATE "C")
+     FROM eap_extension_subsystems s WHERE s.eap_extension_id = e.id), ''),
+  'UTF8')), 'hex');
+
+-- Every duplicate row is mapped onto the row with the lowest id for its content
+CREATE TEMPORARY TABLE eap_extension_canonical ON COMMIT DROP AS
+  SELECT id, canonical_id FROM (
+    SELECT id,
+           first_value(id) OVER (PARTITION BY content_hash ORDER BY id) AS canonical_id
+    FROM eap_extension
+  ) ranked
+  WHERE id <> canonical_id;
+
+CREATE INDEX ON eap_extension_canonical (id);
+
+INSERT INTO eap_configuration_eap_extension (eap_configuration_id, eap_extension_id)
+  SELECT link.eap_configuration_id, c.canonical_id
+  FROM eap_configuration_eap_extension link
+    JOIN eap_extension_canonical c ON c.id = link.eap_extension_id
+  ON CONFLICT DO NOTHING;
+DELETE FROM eap_configuration_eap_extension link
+  USING eap_extension_canonical c WHERE link.eap_extension_id = c.id;
+
+DELETE FROM eap_extension_subsystems s
+  USING eap_extension_canonical c WHERE s.eap_extension_id = c.id;
+
+DELETE FROM eap_extension e
+  USING eap_extension_canonical c WHERE e.id = c.id;
+
+ALTER TABLE IF EXISTS eap_extension
+  ALTER COLUMN content_hash SET NOT NULL,
+  ADD CONSTRAINT U_EAP_EXTENSION_CONTENT_HASH
+    UNIQUE (content_hash);
@@ -0,0 +1,35 @@
+-- This script moves the subsystem and deployment json dumps of EAP configurations into text_blob,
+-- so a dump shared by many servers is stored once. The collection tables keep one row per
+-- configuration and name, which now only holds the hash of the dump.
+
+INSERT INTO text_blob (hash, content)
+  SELECT encode(sha256(convert_to(subsystems, 'UTF8')), 'hex'), subsystems
+  FROM eap_configuration_subsystems
+  ON CONFLICT DO NOTHING;
+
+ALTER TABLE IF EXISTS eap_configuration_subsystems
+  ADD COLUMN subsystems_hash character varying(64);
+
+UPDATE eap_configuration_subsystems
+  SET subsystems_hash = encode(sha256(convert_to(subsystems, 'UTF8')), 'hex');
+
+ALTER TABLE IF EXISTS eap_configuration_subsystems
+  ALTER COLUMN subsystems_hash SET NOT NULL,
+  ADD CONSTRAINT FK_SUBSYSTEMS_TEXT_BLOB FOREIGN KEY (subsystems_hash) REFERENCES text_blob (hash),
+  DROP COLUMN subsystems;
+
+INSERT INTO text_blob (hash, content)
+  SELECT encode(sha256(convert_to(deployments, 'UTF8')), 'hex'), deployments
+  FROM eap_configuration_deployments
+  ON CONFLICT DO NOTHING;
+
+ALTER TABLE IF EXISTS eap_configuration_deployments
+  ADD COLUMN deployments_hash character varying(64);
+
+UPDATE eap_configuration_deployments
+  SET deployments_hash = encode(sha256(convert_to(deployments, 'UTF8')), 'hex');
+
+ALTER TABLE IF EXISTS eap_configuration_deployments
+  ALTER COLUMN deployments_hash SET NOT NULL,
+  ADD CONSTRAINT FK_DEPLOYMENTS_TEXT_BLOB FOREIGN KEY (deployments_hash) REFERENCES text_blob (hash),
+  DROP COLUMN deployments;
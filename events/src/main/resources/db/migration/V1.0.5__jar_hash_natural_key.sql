@@ -0,0 +1,50 @@
+-- This script makes jar_hash content-addressed: a jar is identified by its sha256 checksum, name
+-- and version, and a single row is shared by every instance, module set and deployment that
+-- contains it.
+
+-- Every duplicate row is mapped onto the row with the lowest id for its natural key
+CREATE TEMPORARY TABLE jar_hash_canonical ON COMMIT DROP AS
+  SELECT id, canonical_id FROM (
+    SELECT id,
+           first_value(id) OVER (PARTITION BY sha256checksum, name, version ORDER BY id) AS canonical_id
+    FROM jar_hash
+  ) ranked
+  WHERE id <> canonical_id;
+
+CREATE INDEX ON jar_hash_canonical (id);
+
+-- Repoint the join tables, dropping links that become duplicates of an existing one
+INSERT INTO jvm_instance_jar_hash (jvm_instance_id, jar_hash_id)
+  SELECT link.jvm_instance_id, c.canonical_id
+  FROM jvm_instance_jar_hash link JOIN jar_hash_canonical c ON c.id = link.jar_hash_id
+  ON CONFLICT DO NOTHING;
+DELETE FROM jvm_instance_jar_hash link
+  USING jar_hash_canonical c WHERE link.jar_hash_id = c.id;
+
+INSERT INTO eap_instance_jar_hash (eap_instance_id, jar_hash_id)
+  SELECT link.eap_instance_id, c.canonical_id
+  FROM eap_instance_jar_hash link JOIN jar_hash_canonical c ON c.id = link.jar_hash_id
+  ON CONFLICT DO NOTHING;
+DELETE FROM eap_instance_jar_hash link
+  USING jar_hash_canonical c WHERE link.jar_hash_id = c.id;
+
+INSERT INTO eap_instance_module_jar_hash (eap_instance_id, jar_hash_id)
+  SELECT link.eap_instance_id, c.canonical_id
+  FROM eap_instance_module_jar_hash link JOIN jar_hash_canonical c ON c.id = link.jar_hash_id
+  ON CONFLICT DO NOTHING;
+DELETE FROM eap_instance_module_jar_hash link
+  USING jar_hash_canonical c WHERE link.jar_hash_id = c.id;
+
+INSERT INTO eap_deployment_archive_jar_hash (eap_deployment_id, jar_hash_id)
+  SELECT link.eap_deployment_id, c.canonical_id
+  FROM eap_deployment_archive_jar_hash link JOIN jar_hash_canonical c ON c.id = link.jar_hash_id
+  ON CONFLICT DO NOTHING;
+DELETE FROM eap_deployment_archive_jar_hash link
+  USING jar_hash_canonical c WHERE link.jar_hash_id = c.id;
+
+DELETE FROM jar_hash jh
+  USING jar_hash_canonical c WHERE jh.id = c.id;
+
+ALTER TABLE IF EXISTS jar_hash
+  ADD CONSTRAINT U_JAR_HASH_NATURAL_KEY
+    UNIQUE (sha256checksum, name, version);
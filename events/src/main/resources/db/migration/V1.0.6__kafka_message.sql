@@ -0,0 +1,9 @@
+-- This script adds the table that records which announcements have already been ingested, so
+-- redelivered Kafka messages can be skipped.
+CREATE TABLE IF NOT EXISTS public.kafka_message(
+    id uuid NOT NULL,
+    created timestamp without time zone NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS ix_kafka_message_created ON kafka_message (created);
@@ -0,0 +1,12 @@
+-- This script is used to add the last_seen column to the jvm_instance table.
+
+-- last_seen is the time of the latest report received for the instance. A JVM that reports again
+-- updates its existing row, so created keeps the time of the first report.
+ALTER TABLE IF EXISTS jvm_instance
+  ADD COLUMN last_seen timestamp with time zone
+    DEFAULT now();
+
+UPDATE jvm_instance SET last_seen = created;
+
+ALTER TABLE jvm_instance
+  ALTER COLUMN last_seen SET NOT NULL;
@@ -0,0 +1,7 @@
+-- This script is used to add the fingerprint column to the jvm_instance table.
+
+-- fingerprint is a SHA-256 of the report contents apart from its timestamps. A JVM that sends the
+-- same report again only has its last_seen updated. Rows stored before this column existed have
+-- no fingerprint, and get one the next time their JVM reports.
+ALTER TABLE IF EXISTS jvm_instance
+  ADD COLUMN fingerprint character varying(64);
@@ -0,0 +1,13 @@
+-- This script is used to store the raw report of EAP instances gzipped.
+
+-- raw_gz holds the gzipped UTF-8 report. Rows stored before this column existed keep their report
+-- in raw until the background migration in the events service compresses it and clears raw.
+ALTER TABLE IF EXISTS eap_instance
+  ADD COLUMN raw_gz bytea;
+
+ALTER TABLE IF EXISTS eap_instance
+  ALTER COLUMN raw DROP NOT NULL;
+
+-- Lets the migration find the rows left to compress without scanning the table
+CREATE INDEX IF NOT EXISTS eap_instance_uncompressed_raw_idx
+  ON eap_instance (id) WHERE raw IS NOT NULL;
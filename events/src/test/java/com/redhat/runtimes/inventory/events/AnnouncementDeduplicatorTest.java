@@ -0,0 +1,22 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class AnnouncementDeduplicatorTest {
+
+  @Test
+  public void testKeysOfAnnouncements() {
+    var announce = new ArchiveAnnouncement();
+    assertNull(AnnouncementDeduplicator.keyOf(announce));
+    announce.setUrl("http://example.com/archive");
+    var byUrl = AnnouncementDeduplicator.keyOf(announce);
+    assertNotNull(byUrl);
+    announce.setRequestId("request-1");
+    var byRequest = AnnouncementDeduplicator.keyOf(announce);
+    assertNotEquals(byUrl, byRequest);
+    assertEquals(byRequest, AnnouncementDeduplicator.keyOf(announce));
+  }
+}
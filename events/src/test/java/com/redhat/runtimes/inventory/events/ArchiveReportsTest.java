@@ -0,0 +1,52 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import static com.redhat.runtimes.inventory.events.TestUtils.readBytesFromResources;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+public class ArchiveReportsTest {
+
+  @Test
+  public void testLookAheadKeepsArchiveOrder() throws IOException {
+    var archive = readBytesFromResources("egg_upload.tar.gz");
+    var inline = new ArrayList<byte[]>();
+    ArchiveReports.forEach(new ByteArrayInputStream(archive), 0, inline::add);
+    var ahead = new ArrayList<byte[]>();
+    ArchiveReports.forEach(new ByteArrayInputStream(archive), 2, ahead::add);
+
+    assertFalse(inline.isEmpty());
+    assertEquals(inline.size(), ahead.size());
+    for (int i = 0; i < inline.size(); i++) {
+      assertArrayEquals(inline.get(i), ahead.get(i));
+      assertArrayEquals(inline.get(i), ArchiveReports.reportAt(archive, i));
+    }
+  }
+
+  @Test
+  public void testReaderErrorsReachTheCaller() {
+    var notAnArchive = "not an archive".getBytes();
+    assertThrows(
+        RuntimeException.class,
+        () -> ArchiveReports.forEach(new ByteArrayInputStream(notAnArchive), 2, json -> {}));
+  }
+
+  @Test
+  public void testReaderFailuresOtherThanExceptionsReachTheCaller() {
+    var failing =
+        new InputStream() {
+          @Override
+          public int read() {
+            throw new OutOfMemoryError("simulated");
+          }
+        };
+    var e =
+        assertThrows(OutOfMemoryError.class, () -> ArchiveReports.forEach(failing, 2, json -> {}));
+    assertEquals("simulated", e.getMessage());
+  }
+}
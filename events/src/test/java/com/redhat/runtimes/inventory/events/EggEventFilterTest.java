@@ -0,0 +1,57 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import static com.redhat.runtimes.inventory.events.TestUtils.readBytesFromResources;
+import static com.redhat.runtimes.inventory.events.TestUtils.readFromResources;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+public class EggEventFilterTest {
+
+  @Test
+  public void passesRuntimesEvent() throws IOException {
+    assertTrue(EggEventFilter.mightBeRuntimes(readBytesFromResources("egg_is_runtimes.json")));
+  }
+
+  @Test
+  public void rejectsOtherEvent() throws IOException {
+    assertFalse(EggEventFilter.mightBeRuntimes(readBytesFromResources("egg_datetime.json")));
+  }
+
+  @Test
+  public void passesRuntimesContentType() throws IOException {
+    assertTrue(EggEventFilter.mightBeRuntimes(readBytesFromResources("incoming_kafka1.json")));
+  }
+
+  @Test
+  public void looksAtEveryIsRuntimesField() {
+    assertFalse(mightBeRuntimes("{\"is_runtimes\": false}"));
+    assertFalse(mightBeRuntimes("{\"is_runtimes\""));
+    assertTrue(mightBeRuntimes("{\"is_runtimes\" :\n\"true\"}"));
+    assertTrue(
+        mightBeRuntimes(
+            "{\"facts\": {\"is_runtimes\": false}, \"platform_metadata\":"
+                + " {\"is_runtimes\":true}}"));
+  }
+
+  @Test
+  public void rejectsTombstone() {
+    assertFalse(EggEventFilter.mightBeRuntimes(null));
+  }
+
+  @Test
+  public void agreesWithParser() throws IOException {
+    var parser = new ArchiveAnnouncementParser();
+    for (var name : new String[] {"egg_is_runtimes.json", "egg_datetime.json"}) {
+      var announce = parser.fromJsonString(readFromResources(name));
+      assertEquals(announce.isRuntimes(), mightBeRuntimes(readFromResources(name)), name);
+    }
+  }
+
+  private static boolean mightBeRuntimes(String json) {
+    return EggEventFilter.mightBeRuntimes(json.getBytes(StandardCharsets.UTF_8));
+  }
+}
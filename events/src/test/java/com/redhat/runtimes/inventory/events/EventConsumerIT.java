@@ -1,18 +1,23 @@
-/* Copyright (C) Red Hat 2023 */
+/* Copyright (C) Red Hat 2023-2026 */
 package com.redhat.runtimes.inventory.events;
 
-import static com.redhat.runtimes.inventory.events.EventConsumer.CONSUMED_TIMER_NAME;
+import static com.redhat.runtimes.inventory.events.EventConsumer.CONSUMED_COUNTER_NAME;
+import static com.redhat.runtimes.inventory.events.EventConsumer.DUPLICATE_COUNTER_NAME;
 import static com.redhat.runtimes.inventory.events.EventConsumer.EGG_CHANNEL;
 import static com.redhat.runtimes.inventory.events.EventConsumer.INGRESS_CHANNEL;
 import static com.redhat.runtimes.inventory.events.EventConsumer.PROCESSING_EXCEPTION_COUNTER_NAME;
-import static com.redhat.runtimes.inventory.events.TestUtils.inputStreamFromResources;
+import static com.redhat.runtimes.inventory.events.EventConsumer.UNCHANGED_COUNTER_NAME;
 import static com.redhat.runtimes.inventory.events.TestUtils.readBytesFromResources;
 import static com.redhat.runtimes.inventory.events.TestUtils.readFromResources;
+import static com.redhat.runtimes.inventory.events.TestUtils.unzipJson;
+import static com.redhat.runtimes.inventory.events.TestUtils.utf8;
 import static com.redhat.runtimes.inventory.events.Utils.eapInstanceOf;
 import static com.redhat.runtimes.inventory.events.Utils.instanceOf;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -20,7 +25,10 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.redhat.runtimes.inventory.models.EapInstance;
 import com.redhat.runtimes.inventory.models.InsightsMessage;
+import com.redhat.runtimes.inventory.models.JarHash;
 import com.redhat.runtimes.inventory.models.JvmInstance;
+import com.redhat.runtimes.inventory.models.UpdateInstance;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusTest;
 import io.smallrye.reactive.messaging.memory.InMemoryConnector;
@@ -28,15 +36,19 @@ import jakarta.enterprise.inject.Any;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -47,6 +59,16 @@ public class EventConsumerIT {
 
   @Inject EntityManager entityManager;
 
+  @Inject EventConsumer eventConsumer;
+
+  @Inject JarHashResolver jarHashResolver;
+
+  @Inject TextBlobResolver textBlobResolver;
+
+  @Inject EapExtensionResolver eapExtensionResolver;
+
+  @Inject MeterRegistry registry;
+
   @Inject @Any InMemoryConnector inMemoryConnector;
 
   @Inject MicrometerAssertionHelper micrometerAssertionHelper;
@@ -56,15 +78,20 @@ public class EventConsumerIT {
   @BeforeEach
   void beforeEach() {
     TestUtils.clearTables(entityManager);
-    micrometerAssertionHelper.saveCounterValuesBeforeTest(PROCESSING_EXCEPTION_COUNTER_NAME);
-    micrometerAssertionHelper.removeDynamicTimer(CONSUMED_TIMER_NAME);
+    jarHashResolver.clearCache();
+    textBlobResolver.clearCache();
+    eapExtensionResolver.clearCache();
+    micrometerAssertionHelper.saveCounterValuesBeforeTest(
+        CONSUMED_COUNTER_NAME,
+        PROCESSING_EXCEPTION_COUNTER_NAME,
+        DUPLICATE_COUNTER_NAME,
+        UNCHANGED_COUNTER_NAME);
     EventConsumer.setClock(Clock.fixed(Instant.parse(fixedDate), ZoneId.systemDefault()));
   }
 
   @AfterEach
   void clear() {
     micrometerAssertionHelper.clearSavedValues();
-    micrometerAssertionHelper.removeDynamicTimer(CONSUMED_TIMER_NAME);
   }
 
   @Test
@@ -73,18 +100,18 @@ public class EventConsumerIT {
   // Which is odd because it works in Prod
   void testValidEggPayload() throws IOException, InterruptedException {
     HttpClient mockClient = mock(HttpClient.class);
-    HttpResponse<InputStream> mockResponse = mock(HttpResponse.class);
-    InputStream archive = inputStreamFromResources("egg_upload.tar.gz");
-    when(mockClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-        .thenReturn(mockResponse);
+    HttpResponse<byte[]> mockResponse = mock(HttpResponse.class);
+    byte[] archive = readBytesFromResources("egg_upload.tar.gz");
+    when(mockClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+        .thenReturn(CompletableFuture.completedFuture(mockResponse));
     when(mockResponse.body()).thenReturn(archive);
 
     EventConsumer.setHttpClient(mockClient);
 
-    String kafkaMessage = readFromResources("egg_is_runtimes.json");
-    inMemoryConnector.source(EGG_CHANNEL).send(kafkaMessage);
+    byte[] kafkaMessage = readBytesFromResources("egg_is_runtimes.json");
+    inMemoryConnector.source(EGG_CHANNEL).send(List.of(kafkaMessage));
 
-    micrometerAssertionHelper.awaitAndAssertTimerIncrement(CONSUMED_TIMER_NAME, 1);
+    micrometerAssertionHelper.awaitAndAssertCounterIncrement(CONSUMED_COUNTER_NAME, 1);
     micrometerAssertionHelper.assertCounterIncrement(PROCESSING_EXCEPTION_COUNTER_NAME, 0);
 
     TestUtils.await_entity_count(entityManager, "JvmInstance", 1L);
@@ -96,15 +123,15 @@ public class EventConsumerIT {
     HttpClient mockClient = mock(HttpClient.class);
     HttpResponse<byte[]> mockResponse = mock(HttpResponse.class);
     byte[] buffy = readBytesFromResources("jdk8_MWTELE-66.gz");
-    when(mockClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-        .thenReturn(mockResponse);
+    when(mockClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+        .thenReturn(CompletableFuture.completedFuture(mockResponse));
     when(mockResponse.body()).thenReturn(buffy);
 
     EventConsumer.setHttpClient(mockClient);
     String kafkaMessage = readFromResources("incoming_kafka1.json");
-    inMemoryConnector.source(INGRESS_CHANNEL).send(kafkaMessage);
+    inMemoryConnector.source(INGRESS_CHANNEL).send(List.of(utf8(kafkaMessage)));
 
-    micrometerAssertionHelper.awaitAndAssertTimerIncrement(CONSUMED_TIMER_NAME, 1);
+    micrometerAssertionHelper.awaitAndAssertCounterIncrement(CONSUMED_COUNTER_NAME, 1);
     micrometerAssertionHelper.assertCounterIncrement(PROCESSING_EXCEPTION_COUNTER_NAME, 0);
 
     TestUtils.await_entity_count(entityManager, "JvmInstance", 1L);
@@ -112,8 +139,8 @@ public class EventConsumerIT {
 
   @Test
   void testInvalidPayload() throws IOException {
-    inMemoryConnector.source(INGRESS_CHANNEL).send("not a real payload");
-    micrometerAssertionHelper.awaitAndAssertTimerIncrement(CONSUMED_TIMER_NAME, 1);
+    inMemoryConnector.source(INGRESS_CHANNEL).send(List.of(utf8("not a real payload")));
+    micrometerAssertionHelper.awaitAndAssertCounterIncrement(CONSUMED_COUNTER_NAME, 1);
     micrometerAssertionHelper.assertCounterIncrement(PROCESSING_EXCEPTION_COUNTER_NAME, 1);
   }
 
@@ -126,7 +153,7 @@ public class EventConsumerIT {
     dummy.setTimestamp(Instant.now());
 
     byte[] buffy = readBytesFromResources("jdk8_MWTELE-66.gz");
-    String json = EventConsumer.unzipJson(buffy);
+    String json = unzipJson(buffy);
 
     InsightsMessage inst = instanceOf(dummy, json);
     assertTrue(inst instanceof JvmInstance);
@@ -134,6 +161,7 @@ public class EventConsumerIT {
     assertEquals(0L, TestUtils.entity_count(entityManager, "JvmInstance"));
     assertEquals(0L, TestUtils.entity_count(entityManager, "JarHash"));
 
+    textBlobResolver.resolve((JvmInstance) inst);
     entityManager.persist(inst);
     assertEquals(1L, TestUtils.entity_count(entityManager, "JvmInstance"));
     assertEquals(1074L, TestUtils.entity_count(entityManager, "JarHash"));
@@ -146,6 +174,73 @@ public class EventConsumerIT {
     assertEquals(0L, TestUtils.table_count(entityManager, "jvm_instance_jar_hash"));
   }
 
+  @Test
+  @Transactional
+  void testJarHashesAreSharedBetweenInstances() throws IOException {
+    ArchiveAnnouncement dummy = new ArchiveAnnouncement();
+    dummy.setAccountId("dummy account id");
+    dummy.setOrgId("dummy org");
+    dummy.setTimestamp(Instant.now());
+
+    String json = readFromResources("test17.json");
+    var first = (JvmInstance) instanceOf(dummy, json);
+    var second = (JvmInstance) instanceOf(dummy, json);
+    second.setLinkingHash(first.getLinkingHash() + "-second");
+
+    for (var inst : List.of(first, second)) {
+      jarHashResolver.resolve(inst);
+      textBlobResolver.resolve(inst);
+      entityManager.persist(inst);
+    }
+    entityManager.flush();
+
+    // Both instances point at the same 11 rows
+    assertEquals(2L, TestUtils.entity_count(entityManager, "JvmInstance"));
+    assertEquals(11L, TestUtils.entity_count(entityManager, "JarHash"));
+    assertEquals(22L, TestUtils.table_count(entityManager, "jvm_instance_jar_hash"));
+    assertEquals(first.getJarHashes(), second.getJarHashes());
+
+    // The second instance found the ids of its jars in the cache
+    var hits = registry.get("cache.gets").tags("cache", "jar-hash-ids", "result", "hit");
+    assertTrue(hits.functionCounter().count() >= 11);
+  }
+
+  @Test
+  @Transactional
+  void testUpdateLinksOnlyNewJars() throws IOException {
+    ArchiveAnnouncement dummy = new ArchiveAnnouncement();
+    dummy.setAccountId("dummy account id");
+    dummy.setOrgId("dummy org");
+    dummy.setTimestamp(Instant.now());
+
+    var inst = (JvmInstance) instanceOf(dummy, readFromResources("test17.json"));
+    var known = inst.getJarHashes().iterator().next();
+    eventConsumer.persist(inst);
+    entityManager.flush();
+    entityManager.clear();
+
+    var copy =
+        new JarHash(
+            null,
+            known.getName(),
+            known.getGroupId(),
+            known.getVendor(),
+            known.getVersion(),
+            known.getSha1Checksum(),
+            known.getSha256Checksum(),
+            known.getSha512Checksum());
+    var added = new JarHash(null, "added.jar", "", "", "1.0", "", "abc123", "");
+    eventConsumer.persist(new UpdateInstance(inst.getLinkingHash(), List.of(copy, added)));
+
+    // Only the jar that is new to the instance is linked
+    assertEquals(12L, TestUtils.entity_count(entityManager, "JarHash"));
+    assertEquals(12L, TestUtils.table_count(entityManager, "jvm_instance_jar_hash"));
+
+    assertThrows(
+        IllegalStateException.class,
+        () -> eventConsumer.persist(new UpdateInstance("no-such-hash", List.of(added))));
+  }
+
   @Test
   @Transactional
   void testEapInstanceBasicPostgresTransactions() throws IOException {
@@ -172,6 +267,7 @@ public class EventConsumerIT {
     /*******************
      *  Persist and check counts
      *******************/
+    textBlobResolver.resolve(inst);
     entityManager.persist(inst);
     assertEquals(1L, TestUtils.entity_count(entityManager, "EapInstance"));
     assertEquals(1L, TestUtils.entity_count(entityManager, "EapConfiguration"));
@@ -213,16 +309,16 @@ public class EventConsumerIT {
     assertEquals(0L, TestUtils.table_count(entityManager, "eap_deployment_archive_jar_hash"));
   }
 
-  // We saw hibernate exceptions causing issues with messages being received
-  // Let's try to make sure that doesn't happen.
+  // We saw hibernate exceptions causing issues with messages being received. A resent report
+  // now refreshes its instance and a redelivered announcement is skipped, neither may get stuck.
   @Test
   @SuppressWarnings("unchecked")
-  void testHibernateExceptionCausesHangs() throws IOException, InterruptedException {
+  void testResentReportsKeepTheChannelFlowing() throws IOException, InterruptedException {
     HttpClient mockClient = mock(HttpClient.class);
     HttpResponse<byte[]> mockResponse = mock(HttpResponse.class);
     byte[] buffy = readBytesFromResources("jdk8_MWTELE-66.gz");
-    when(mockClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-        .thenReturn(mockResponse);
+    when(mockClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+        .thenReturn(CompletableFuture.completedFuture(mockResponse));
     when(mockResponse.body()).thenReturn(buffy);
 
     EventConsumer.setHttpClient(mockClient);
@@ -242,26 +338,211 @@ public class EventConsumerIT {
       throw new RuntimeException("Error in unmarshalling JSON", e);
     }
     // First submit a good object
-    inMemoryConnector.source(INGRESS_CHANNEL).send(kafkaFirst);
+    inMemoryConnector.source(INGRESS_CHANNEL).send(List.of(utf8(kafkaFirst)));
 
-    micrometerAssertionHelper.awaitAndAssertTimerIncrement(CONSUMED_TIMER_NAME, 1);
+    micrometerAssertionHelper.awaitAndAssertCounterIncrement(CONSUMED_COUNTER_NAME, 1);
     micrometerAssertionHelper.assertCounterIncrement(PROCESSING_EXCEPTION_COUNTER_NAME, 0);
     TestUtils.await_entity_count(entityManager, "JvmInstance", 1L);
 
-    // This should error because of a duplicate object
-    inMemoryConnector.source(INGRESS_CHANNEL).send(kafkaSecond);
+    // The same report under another announcement only touches the stored instance
+    inMemoryConnector.source(INGRESS_CHANNEL).send(List.of(utf8(kafkaSecond)));
 
-    micrometerAssertionHelper.awaitAndAssertTimerIncrement(CONSUMED_TIMER_NAME, 2);
-    micrometerAssertionHelper.assertCounterIncrement(PROCESSING_EXCEPTION_COUNTER_NAME, 1);
+    micrometerAssertionHelper.awaitAndAssertCounterIncrement(CONSUMED_COUNTER_NAME, 2);
+    micrometerAssertionHelper.assertCounterIncrement(PROCESSING_EXCEPTION_COUNTER_NAME, 0);
+    micrometerAssertionHelper.assertCounterIncrement(UNCHANGED_COUNTER_NAME, 1);
     TestUtils.await_entity_count(entityManager, "JvmInstance", 1L);
 
-    // Now we submit a new object and see that it persists
+    // A redelivered announcement is skipped, whatever its archive now holds
     buffy = readBytesFromResources("eap_example1.json.gz");
     when(mockResponse.body()).thenReturn(buffy);
-    inMemoryConnector.source(INGRESS_CHANNEL).send(kafkaSecond);
+    inMemoryConnector.source(INGRESS_CHANNEL).send(List.of(utf8(kafkaSecond)));
 
-    micrometerAssertionHelper.awaitAndAssertTimerIncrement(CONSUMED_TIMER_NAME, 3);
-    micrometerAssertionHelper.assertCounterIncrement(PROCESSING_EXCEPTION_COUNTER_NAME, 1);
+    micrometerAssertionHelper.awaitAndAssertCounterIncrement(CONSUMED_COUNTER_NAME, 3);
+    micrometerAssertionHelper.assertCounterIncrement(DUPLICATE_COUNTER_NAME, 1);
+    TestUtils.await_entity_count(entityManager, "JvmInstance", 1L);
+
+    // Now we submit a new object and see that it persists
+    inMemoryConnector.source(INGRESS_CHANNEL).send(List.of(utf8(kafkaThird)));
+
+    micrometerAssertionHelper.awaitAndAssertCounterIncrement(CONSUMED_COUNTER_NAME, 4);
+    micrometerAssertionHelper.assertCounterIncrement(PROCESSING_EXCEPTION_COUNTER_NAME, 0);
     TestUtils.await_entity_count(entityManager, "JvmInstance", 2L);
   }
+
+  // A record that fails to persist must not take the rest of its batch down with it
+  @Test
+  @SuppressWarnings("unchecked")
+  void testFailedRecordIsIsolatedFromItsBatch() throws IOException, InterruptedException {
+    HttpClient mockClient = mock(HttpClient.class);
+    HttpResponse<byte[]> goodResponse = mock(HttpResponse.class);
+    HttpResponse<byte[]> badResponse = mock(HttpResponse.class);
+    when(goodResponse.body()).thenReturn(readBytesFromResources("jdk8_MWTELE-66.gz"));
+    // The hostname column only holds 50 characters
+    var badJson =
+        readFromResources("test17.json").replace("\"uriel.local\"", "\"" + "x".repeat(60) + "\"");
+    when(badResponse.body()).thenReturn(gzip(badJson));
+    when(mockClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+        .thenReturn(
+            CompletableFuture.completedFuture(goodResponse),
+            CompletableFuture.completedFuture(badResponse));
+
+    EventConsumer.setHttpClient(mockClient);
+    String kafkaMessage = readFromResources("incoming_kafka1.json");
+    var otherMessage = kafkaMessage.replace("1J6DOEu9ni-000029", "1J6DOEu9ni-000030");
+    inMemoryConnector.source(INGRESS_CHANNEL).send(List.of(utf8(kafkaMessage), utf8(otherMessage)));
+
+    micrometerAssertionHelper.awaitAndAssertCounterIncrement(CONSUMED_COUNTER_NAME, 2);
+    micrometerAssertionHelper.assertCounterIncrement(PROCESSING_EXCEPTION_COUNTER_NAME, 1);
+    TestUtils.await_entity_count(entityManager, "JvmInstance", 1L);
+  }
+
+  // The same report twice in one batch, the second one finds the instance of the first
+  @Test
+  @SuppressWarnings("unchecked")
+  void testSameReportTwiceInOneBatch() throws IOException, InterruptedException {
+    HttpClient mockClient = mock(HttpClient.class);
+    HttpResponse<byte[]> mockResponse = mock(HttpResponse.class);
+    byte[] buffy = readBytesFromResources("jdk8_MWTELE-66.gz");
+    when(mockClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+        .thenReturn(CompletableFuture.completedFuture(mockResponse));
+    when(mockResponse.body()).thenReturn(buffy);
+
+    EventConsumer.setHttpClient(mockClient);
+    String kafkaMessage = readFromResources("incoming_kafka1.json");
+    var otherMessage = kafkaMessage.replace("1J6DOEu9ni-000029", "1J6DOEu9ni-000030");
+    inMemoryConnector
+        .source(INGRESS_CHANNEL)
+        .send(List.of(utf8(kafkaMessage), utf8(kafkaMessage), utf8(otherMessage)));
+
+    micrometerAssertionHelper.awaitAndAssertCounterIncrement(CONSUMED_COUNTER_NAME, 3);
+    micrometerAssertionHelper.assertCounterIncrement(PROCESSING_EXCEPTION_COUNTER_NAME, 0);
+    micrometerAssertionHelper.assertCounterIncrement(UNCHANGED_COUNTER_NAME, 2);
+    TestUtils.await_entity_count(entityManager, "JvmInstance", 1L);
+  }
+
+  @Test
+  @Transactional
+  void testReportForKnownInstanceRefreshesIt() throws IOException {
+    ArchiveAnnouncement dummy = new ArchiveAnnouncement();
+    dummy.setAccountId("dummy account id");
+    dummy.setOrgId("dummy org");
+    dummy.setTimestamp(Instant.parse(fixedDate));
+
+    String json = readFromResources("test17.json");
+    var first = (JvmInstance) instanceOf(dummy, json);
+    eventConsumer.persist(first);
+    entityManager.flush();
+
+    dummy.setTimestamp(Instant.parse(fixedDate).plusSeconds(3600));
+    var changed =
+        json.replace("1685006422892", "1685010022892")
+            .replace("\"jvm.heap.max\" : 8192", "\"jvm.heap.max\" : 4096")
+            .replace("uriel.local", "gabriel.local")
+            .replace("temurin-17.jdk", "temurin-17.0.2.jdk");
+    var again = (JvmInstance) instanceOf(dummy, changed);
+    eventConsumer.persist(again);
+    entityManager.clear();
+
+    // The second report updated the row of the first rather than failing on the linking hash
+    assertEquals(1L, TestUtils.entity_count(entityManager, "JvmInstance"));
+    var stored = entityManager.find(JvmInstance.class, first.getId());
+    assertEquals(1685010022892L, stored.getLaunchTime());
+    assertEquals(4096, stored.getHeapMax());
+    assertEquals("gabriel.local", stored.getHostname());
+    assertEquals(again.getJavaHome(), stored.getJavaHome());
+    assertEquals(again.getFingerprint(), stored.getFingerprint());
+    assertEquals(again.getLastSeen().toInstant(), stored.getLastSeen().toInstant());
+    assertEquals(first.getCreated().toInstant(), stored.getCreated().toInstant());
+    assertEquals(11L, TestUtils.table_count(entityManager, "jvm_instance_jar_hash"));
+  }
+
+  @Test
+  @Transactional
+  void testChangedEapReportReplacesItsInstance() throws IOException {
+    ArchiveAnnouncement dummy = new ArchiveAnnouncement();
+    dummy.setAccountId("dummy account id");
+    dummy.setOrgId("dummy org");
+    dummy.setTimestamp(Instant.parse(fixedDate));
+
+    String json = readFromResources("eap_example1.json");
+    var first = (EapInstance) instanceOf(dummy, json);
+    eventConsumer.persist(first);
+    entityManager.flush();
+
+    dummy.setTimestamp(Instant.parse(fixedDate).plusSeconds(3600));
+    var changed =
+        json.replace("1689943360504", "1689946960504")
+            .replace("\"system.hostname\" : \"freya\"", "\"system.hostname\" : \"idun\"");
+    var again = (EapInstance) instanceOf(dummy, changed);
+    eventConsumer.persist(again);
+    entityManager.flush();
+    entityManager.clear();
+
+    // The whole EAP graph was written again, not only the jvm_instance row
+    assertEquals(1L, TestUtils.entity_count(entityManager, "EapInstance"));
+    assertEquals(1L, TestUtils.entity_count(entityManager, "EapConfiguration"));
+    assertEquals(2L, TestUtils.entity_count(entityManager, "EapDeployment"));
+    assertEquals(3555L, TestUtils.table_count(entityManager, "eap_instance_module_jar_hash"));
+    var stored = entityManager.find(EapInstance.class, again.getId());
+    assertEquals("idun", stored.getHostname());
+    assertEquals(1689946960504L, stored.getLaunchTime());
+    assertEquals(again.getFingerprint(), stored.getFingerprint());
+    assertEquals(first.getCreated().toInstant(), stored.getCreated().toInstant());
+  }
+
+  @Test
+  @Transactional
+  void testUnchangedReportOnlyTouchesLastSeen() throws IOException {
+    ArchiveAnnouncement dummy = new ArchiveAnnouncement();
+    dummy.setAccountId("dummy account id");
+    dummy.setOrgId("dummy org");
+    dummy.setTimestamp(Instant.parse(fixedDate));
+
+    String json = readFromResources("test17.json");
+    var first = (JvmInstance) instanceOf(dummy, json);
+    eventConsumer.persist(first);
+    entityManager.flush();
+
+    dummy.setTimestamp(Instant.parse(fixedDate).plusSeconds(3600));
+    var again = (JvmInstance) instanceOf(dummy, json.replace("1685006422892", "1685010022892"));
+    eventConsumer.persist(again);
+    entityManager.clear();
+
+    var stored = entityManager.find(JvmInstance.class, first.getId());
+    assertEquals(again.getLastSeen().toInstant(), stored.getLastSeen().toInstant());
+    // Nothing else was written
+    assertEquals(1685006422892L, stored.getLaunchTime());
+    assertEquals(first.getFingerprint(), stored.getFingerprint());
+  }
+
+  private static byte[] gzip(String json) throws IOException {
+    var bytes = new ByteArrayOutputStream();
+    try (var gzip = new GZIPOutputStream(bytes)) {
+      gzip.write(json.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testRedeliveredMessageIsNotFetchedAgain() throws IOException, InterruptedException {
+    HttpClient mockClient = mock(HttpClient.class);
+    HttpResponse<byte[]> mockResponse = mock(HttpResponse.class);
+    byte[] buffy = readBytesFromResources("jdk8_MWTELE-66.gz");
+    when(mockClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+        .thenReturn(CompletableFuture.completedFuture(mockResponse));
+    when(mockResponse.body()).thenReturn(buffy);
+
+    EventConsumer.setHttpClient(mockClient);
+    String kafkaMessage = readFromResources("incoming_kafka1.json");
+    inMemoryConnector.source(INGRESS_CHANNEL).send(List.of(utf8(kafkaMessage)));
+    micrometerAssertionHelper.awaitAndAssertCounterIncrement(CONSUMED_COUNTER_NAME, 1);
+    TestUtils.await_entity_count(entityManager, "JvmInstance", 1L);
+
+    inMemoryConnector.source(INGRESS_CHANNEL).send(List.of(utf8(kafkaMessage)));
+    micrometerAssertionHelper.awaitAndAssertCounterIncrement(DUPLICATE_COUNTER_NAME, 1);
+    micrometerAssertionHelper.assertCounterIncrement(PROCESSING_EXCEPTION_COUNTER_NAME, 0);
+    verify(mockClient, times(1))
+        .sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+  }
 }
@@ -1,12 +1,18 @@
-/* Copyright (C) Red Hat 2023 */
+/* Copyright (C) Red Hat 2023-2026 */
 package com.redhat.runtimes.inventory.events;
 
+import static com.redhat.runtimes.inventory.events.TestUtils.getJsonsFromArchiveStream;
 import static com.redhat.runtimes.inventory.events.TestUtils.inputStreamFromResources;
 import static com.redhat.runtimes.inventory.events.TestUtils.readBytesFromResources;
 import static com.redhat.runtimes.inventory.events.TestUtils.readFromResources;
+import static com.redhat.runtimes.inventory.events.TestUtils.unzipJson;
+import static com.redhat.runtimes.inventory.events.TestUtils.utf8;
 import static com.redhat.runtimes.inventory.events.Utils.instanceOf;
 import static com.redhat.runtimes.inventory.models.InsightsMessage.REDACTED_VALUE;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -14,10 +20,28 @@ import com.redhat.runtimes.inventory.models.EapInstance;
 import com.redhat.runtimes.inventory.models.JarHash;
 import com.redhat.runtimes.inventory.models.JvmInstance;
 import com.redhat.runtimes.inventory.models.UpdateInstance;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Clock;
 import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.eclipse.microprofile.reactive.messaging.Message;
 import org.junit.jupiter.api.Test;
 
 public class EventConsumerTest {
@@ -25,13 +49,13 @@ public class EventConsumerTest {
   @Test
   public void testEggUnzip() throws IOException {
     var archive = inputStreamFromResources("egg_upload.tar.gz");
-    var jsonFiles = EventConsumer.getJsonsFromArchiveStream(archive);
+    var jsonFiles = getJsonsFromArchiveStream(archive);
   }
 
   @Test
   public void testSimpleUnzip() throws IOException {
     var buffy = readBytesFromResources("1J6DOEu9ni-000029.gz");
-    var json = EventConsumer.unzipJson(buffy);
+    var json = unzipJson(buffy);
     TypeReference<Map<String, Object>> typeRef = new TypeReference<>() {};
     var mapper = new ObjectMapper();
     var o = mapper.readValue(json, typeRef);
@@ -46,7 +70,7 @@ public class EventConsumerTest {
     dummy.setTimestamp(Instant.now());
 
     var buffy = readBytesFromResources("jdk8_MWTELE-66.gz");
-    var json = EventConsumer.unzipJson(buffy);
+    var json = unzipJson(buffy);
 
     var msg = instanceOf(dummy, json);
     assertTrue(msg instanceof JvmInstance);
@@ -75,7 +99,7 @@ public class EventConsumerTest {
     dummy.setTimestamp(Instant.MIN);
 
     var buffy = readBytesFromResources("update1.json.gz");
-    var json = EventConsumer.unzipJson(buffy);
+    var json = unzipJson(buffy);
     var msg = instanceOf(dummy, json);
     assertTrue(msg instanceof UpdateInstance);
     var inst = (UpdateInstance) msg;
@@ -114,14 +138,12 @@ public class EventConsumerTest {
   }
 
   @Test
-  @SuppressWarnings("unchecked")
   public void testJarHashAttributes() throws IOException {
+    var dummy = new ArchiveAnnouncement();
+    dummy.setTimestamp(Instant.now());
     byte[] buffy = readBytesFromResources("jdk8_MWTELE-66.gz");
-    String json = EventConsumer.unzipJson(buffy);
-    ObjectMapper objectMapper = new ObjectMapper();
-    Map<String, Object> map =
-        objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
-    Set<JarHash> jarHashes = Utils.jarHashesOf((Map<String, Object>) map.get("jars"));
+    var inst = (JvmInstance) ReportDecoder.decodeGzipped(dummy, buffy);
+    Set<JarHash> jarHashes = inst.getJarHashes();
     assertEquals(1, jarHashes.size());
     JarHash jar = jarHashes.iterator().next();
     assertEquals("JBoss by Red Hat", jar.getVendor());
@@ -204,4 +226,160 @@ public class EventConsumerTest {
     assertEquals(sanitizedJvmArgs, inst.getJvmArgs());
     assertEquals(sanitizedJavaCommand, inst.getJavaCommand());
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testBatchDownloadsAreBoundedAndOrdered() throws Exception {
+    var response = mock(HttpResponse.class);
+    when(response.body()).thenReturn(readBytesFromResources("jdk8_MWTELE-66.gz"));
+    var current = new AtomicInteger();
+    var max = new AtomicInteger();
+    var delays = new ArrayDeque<>(List.of(300L, 200L, 100L, 0L));
+    var client = mock(HttpClient.class);
+    when(client.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+        .thenAnswer(
+            invocation -> {
+              max.accumulateAndGet(current.incrementAndGet(), Math::max);
+              long delay = delays.poll();
+              return CompletableFuture.supplyAsync(
+                  () -> {
+                    current.decrementAndGet();
+                    return response;
+                  },
+                  CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+            });
+    EventConsumer.setHttpClient(client);
+    EventConsumer.setClock(Clock.fixed(Instant.parse("2023-04-01T01:00:00Z"), ZoneId.of("UTC")));
+
+    var consumer = new EventConsumer();
+    consumer.registry = new SimpleMeterRegistry();
+    consumer.deduplicator = new AnnouncementDeduplicator();
+    consumer.deduplicator.init();
+    consumer.maxInFlight = 2;
+    consumer.init();
+
+    var kafkaMessage = readFromResources("incoming_kafka1.json");
+    var payloads = new ArrayList<byte[]>();
+    for (int i = 0; i < 4; i++) {
+      payloads.add(
+          utf8(kafkaMessage.replace("\"org_id\": \"12345\"", "\"org_id\": \"org" + i + "\"")));
+    }
+    var reports = consumer.readBatch(payloads, false);
+
+    assertEquals(4, reports.size());
+    for (int i = 0; i < 4; i++) {
+      assertEquals("org" + i, ((JvmInstance) reports.get(i).msg()).getOrgId());
+    }
+    assertTrue(max.get() <= 2);
+    assertEquals(4, consumer.registry.timer(EventConsumer.FETCH_TIMER_NAME).count());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testOnlyFilteredArchivesAreClaimed() throws Exception {
+    var stale = mock(HttpResponse.class);
+    when(stale.statusCode()).thenReturn(200);
+    when(stale.body()).thenReturn(readBytesFromResources("jdk8_MWTELE-66.gz"));
+    var unusable = mock(HttpResponse.class);
+    when(unusable.statusCode()).thenReturn(200);
+    when(unusable.body()).thenReturn(utf8("not an archive"));
+    var unavailable = mock(HttpResponse.class);
+    when(unavailable.statusCode()).thenReturn(503);
+    var client = mock(HttpClient.class);
+    when(client.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+        .thenReturn(CompletableFuture.completedFuture(stale))
+        .thenReturn(CompletableFuture.completedFuture(unusable))
+        .thenReturn(CompletableFuture.completedFuture(unavailable));
+    EventConsumer.setHttpClient(client);
+    // Well after the report was taken
+    EventConsumer.setClock(Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneId.of("UTC")));
+
+    var claimed = new ArrayList<UUID>();
+    var consumer =
+        new EventConsumer() {
+          @Override
+          void claimUnused(UUID messageId) {
+            claimed.add(messageId);
+          }
+        };
+    consumer.registry = new SimpleMeterRegistry();
+    consumer.deduplicator = new AnnouncementDeduplicator();
+    consumer.deduplicator.init();
+    consumer.maxInFlight = 1;
+    consumer.init();
+
+    var kafkaMessage = readFromResources("incoming_kafka1.json");
+    var payloads = new ArrayList<byte[]>();
+    for (int i = 0; i < 3; i++) {
+      payloads.add(utf8(kafkaMessage.replace("-000029", "-00003" + i)));
+    }
+    var reports = consumer.readBatch(payloads, false);
+
+    // Archives that couldn't be fetched or decoded may work when redelivered
+    assertTrue(reports.isEmpty());
+    var announce = new ArchiveAnnouncementParser().fromJsonBytes(payloads.get(0));
+    assertEquals(List.of(AnnouncementDeduplicator.keyOf(announce)), claimed);
+  }
+
+  @Test
+  public void testEggTombstoneIsRejected() {
+    var consumer = new EventConsumer();
+    consumer.registry = new SimpleMeterRegistry();
+    consumer.maxInFlight = 1;
+    consumer.init();
+
+    var records = new ArrayList<byte[]>();
+    records.add(null);
+    consumer.processEggFlow(Message.of(records)).toCompletableFuture().join();
+
+    assertEquals(1, consumer.registry.counter(EventConsumer.REJECTED_COUNTER_NAME).count());
+    assertEquals(1, consumer.registry.counter(EventConsumer.CONSUMED_COUNTER_NAME).count());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testParallelEggReportsKeepArchiveOrder() throws Exception {
+    // An egg archive holding several independent reports
+    var json = readFromResources("test17.json");
+    var archive = new ByteArrayOutputStream();
+    try (var tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(archive))) {
+      for (int i = 0; i < 6; i++) {
+        var report = json.replace("uriel.local", "host" + i).getBytes();
+        var entry =
+            new TarArchiveEntry("egg" + ArchiveReports.INSIGHTS_DATA_PATH + "report" + i + ".json");
+        entry.setSize(report.length);
+        tar.putArchiveEntry(entry);
+        tar.write(report);
+        tar.closeArchiveEntry();
+      }
+    }
+    var response = mock(HttpResponse.class);
+    when(response.body()).thenReturn(archive.toByteArray());
+    var client = mock(HttpClient.class);
+    when(client.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+        .thenReturn(CompletableFuture.completedFuture(response));
+    EventConsumer.setHttpClient(client);
+    EventConsumer.setClock(Clock.fixed(Instant.ofEpochMilli(1685006422892L), ZoneId.of("UTC")));
+
+    var consumer = new EventConsumer();
+    consumer.registry = new SimpleMeterRegistry();
+    consumer.deduplicator = new AnnouncementDeduplicator();
+    consumer.deduplicator.init();
+    consumer.maxInFlight = 1;
+    consumer.eggLookAhead = 2;
+    consumer.eggDecodeThreads = 3;
+    consumer.init();
+    try {
+      var reports =
+          consumer.readBatch(List.of(readBytesFromResources("egg_is_runtimes.json")), true);
+
+      assertEquals(6, reports.size());
+      for (int i = 0; i < 6; i++) {
+        assertEquals("host" + i, ((JvmInstance) reports.get(i).msg()).getHostname());
+      }
+      assertEquals(6, consumer.registry.timer(EventConsumer.DECODE_TIMER_NAME).count());
+    } finally {
+      consumer.shutdown();
+    }
+  }
 }
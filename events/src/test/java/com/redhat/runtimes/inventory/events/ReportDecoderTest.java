@@ -0,0 +1,238 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import static com.redhat.runtimes.inventory.events.TestUtils.readBytesFromResources;
+import static com.redhat.runtimes.inventory.events.TestUtils.readFromResources;
+import static com.redhat.runtimes.inventory.events.TestUtils.unzipJson;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redhat.runtimes.inventory.models.EapInstance;
+import com.redhat.runtimes.inventory.models.InsightsMessage;
+import com.redhat.runtimes.inventory.models.JarHash;
+import com.redhat.runtimes.inventory.models.JvmInstance;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+
+// Checks the streaming decoder against a plain Map parse of the same payloads
+public class ReportDecoderTest {
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  @Test
+  public void testJdk17Equivalence() throws IOException {
+    assertEquivalent(readFromResources("test17.json"));
+  }
+
+  @Test
+  public void testJdk8Equivalence() throws IOException {
+    assertEquivalent(unzipJson(readBytesFromResources("jdk8_MWTELE-66.gz")));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testEapEquivalence() throws IOException {
+    var inst = (EapInstance) assertEquivalent(readFromResources("eap_example1.json"));
+    var eap = readMap(readFromResources("eap_example1.json")).get("eap");
+    var modules = jarHashesOf(((Map<String, Object>) eap).get("eap-modules"));
+    assertEquals(modules, inst.getModules());
+    assertEquals("EAP", inst.getWorkload());
+  }
+
+  @Test
+  public void testGzippedDecoding() throws IOException {
+    var announce = new ArchiveAnnouncement();
+    announce.setTimestamp(Instant.now());
+    for (var fName : List.of("jdk8_MWTELE-66.gz", "eap_example1.json.gz")) {
+      var gzipped = TestUtils.readBytesFromResources(fName);
+      String json;
+      try (var gunzip = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+        json = new String(gunzip.readAllBytes(), StandardCharsets.UTF_8);
+      }
+      var expected = ReportDecoder.decode(announce, json);
+      var actual = ReportDecoder.decodeGzipped(announce, gzipped);
+      if (actual instanceof EapInstance eap) {
+        // EapInstance.equals() loops through its configuration back-reference
+        var expectedEap = (EapInstance) expected;
+        assertEquals(json, eap.getRaw());
+        assertEquals(expectedEap.getDetails(), eap.getDetails());
+        assertEquals(expectedEap.getJarHashes(), eap.getJarHashes());
+        assertEquals(expectedEap.getModules(), eap.getModules());
+        assertEquals(
+            expectedEap.getConfiguration().getSubsystems(), eap.getConfiguration().getSubsystems());
+      } else {
+        assertEquals(expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void testByteDecoding() throws IOException {
+    var announce = new ArchiveAnnouncement();
+    announce.setTimestamp(Instant.now());
+    // Non-ASCII content must survive without going through the platform charset
+    var json = readFromResources("test17.json").replace("uriel.local", "\u00fcberhost.local");
+    var expected = ReportDecoder.decode(announce, json);
+    var actual = ReportDecoder.decode(announce, json.getBytes(StandardCharsets.UTF_8));
+    assertEquals(expected, actual);
+    assertEquals("\u00fcberhost.local", ((JvmInstance) actual).getHostname());
+
+    var eapJson = readBytesFromResources("eap_example1.json");
+    var eap = (EapInstance) ReportDecoder.decode(announce, eapJson);
+    assertEquals(new String(eapJson, StandardCharsets.UTF_8), eap.getRaw());
+  }
+
+  @Test
+  public void testNullEapIsPlainJvm() throws IOException {
+    var announce = new ArchiveAnnouncement();
+    announce.setTimestamp(Instant.now());
+    var json = readFromResources("test17.json");
+    var withNullEap = json.replaceFirst("\\{", "{\"eap\": null, ");
+    var msg = ReportDecoder.decode(announce, withNullEap);
+    assertFalse(msg instanceof EapInstance);
+    assertEquals(ReportDecoder.decode(announce, json), msg);
+  }
+
+  // A jars list that is null or not an array is empty, and the parser stays on the next field
+  @Test
+  public void testJarsThatAreNotAnArray() throws IOException {
+    for (var jars :
+        List.of(
+            "{\"jars\": null, \"version\": \"1\"}",
+            "{\"version\": \"1\", \"jars\": null}",
+            "{\"version\": \"1\", \"jars\": \"none\"}",
+            "null")) {
+      var json = "{\"jars\": " + jars + ", \"idHash\": \"after\"}";
+      try (var p = mapper.getFactory().createParser(json)) {
+        p.nextToken();
+        p.nextToken();
+        p.nextToken();
+        assertEquals(Set.of(), ReportDecoder.readJarHashes(p), json);
+        assertEquals(JsonToken.FIELD_NAME, p.nextToken(), json);
+        assertEquals("idHash", p.currentName(), json);
+      }
+    }
+  }
+
+  // The JSON dumps of the configuration must match what serializing the parsed sections gave
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testEapConfigurationDumps() throws IOException {
+    var writer = new ObjectMapper().writer();
+    var announce = new ArchiveAnnouncement();
+    announce.setTimestamp(Instant.now());
+    for (var fName : List.of("eap_example1.json", "jdk8_MWTELE-66.gz")) {
+      var json =
+          fName.endsWith(".gz")
+              ? unzipJson(readBytesFromResources(fName))
+              : readFromResources(fName);
+      var config = ((EapInstance) ReportDecoder.decode(announce, json)).getConfiguration();
+      var eap = (Map<String, Object>) readMap(json).get("eap");
+      var configRep = (Map<String, Object>) eap.get("eap-configuration");
+      var rep = (Map<String, Object>) configRep.get("configuration");
+
+      assertEquals(String.valueOf(configRep.get("version")), config.getVersion());
+      assertEquals(String.valueOf(rep.get("product-version")), config.getProductVersion());
+      assertEquals(String.valueOf(rep.get("suspend-state")), config.getSuspendState());
+      assertEquals(
+          writer.writeValueAsString(rep.get("socket-binding-group")),
+          config.getSocketBindingGroups());
+      assertEquals(writer.writeValueAsString(rep.get("path")), config.getPaths());
+      assertEquals(writer.writeValueAsString(rep.get("interface")), config.getInterfaces());
+      assertEquals(writer.writeValueAsString(rep.get("core-service")), config.getCoreServices());
+      var subsystems = (Map<String, Object>) rep.get("subsystem");
+      assertEquals(subsystems.keySet(), config.getSubsystems().keySet());
+      for (var entry : subsystems.entrySet()) {
+        assertEquals(
+            writer.writeValueAsString(entry.getValue()),
+            config.getSubsystems().get(entry.getKey()));
+      }
+      var deployments = (Map<String, Object>) rep.get("deployment");
+      if (deployments == null) {
+        deployments = Map.of();
+      }
+      assertEquals(deployments.keySet(), config.getDeployments().keySet());
+      for (var entry : deployments.entrySet()) {
+        assertEquals(
+            writer.writeValueAsString(entry.getValue()),
+            config.getDeployments().get(entry.getKey()));
+      }
+      assertEquals(
+          ((Map<String, Object>) rep.get("extension")).size(), config.getExtensions().size());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static JvmInstance assertEquivalent(String json) throws IOException {
+    var announce = new ArchiveAnnouncement();
+    announce.setTimestamp(Instant.now());
+    InsightsMessage msg = ReportDecoder.decode(announce, json);
+    assertTrue(msg instanceof JvmInstance);
+    var inst = (JvmInstance) msg;
+
+    var o = readMap(json);
+    var basic = (Map<String, Object>) o.get("basic");
+    assertEquals(o.get("idHash"), inst.getLinkingHash());
+    assertEquals(basic, inst.getDetails());
+
+    assertEquals(String.valueOf(basic.get("java.runtime.version")), inst.getVersionString());
+    assertEquals(String.valueOf(basic.get("java.version")), inst.getVersion());
+    assertEquals(String.valueOf(basic.get("java.vm.specification.vendor")), inst.getVendor());
+    assertEquals(
+        (int) Double.parseDouble(String.valueOf(basic.get("jvm.heap.min"))), inst.getHeapMin());
+    assertEquals(
+        (int) Double.parseDouble(String.valueOf(basic.get("jvm.heap.max"))), inst.getHeapMax());
+    assertEquals(
+        Long.parseLong(String.valueOf(basic.get("jvm.report_time"))), inst.getLaunchTime());
+    assertEquals(String.valueOf(basic.get("jvm.report_time")), inst.getJvmReportTime());
+    assertEquals(String.valueOf(basic.get("system.arch")), inst.getOsArch());
+    assertEquals(
+        Integer.parseInt(String.valueOf(basic.get("system.cores.logical"))), inst.getProcessors());
+    assertEquals(String.valueOf(basic.get("system.hostname")), inst.getHostname());
+    assertEquals(String.valueOf(basic.get("java.class.path")), inst.getJavaClassPath());
+    assertEquals(String.valueOf(basic.get("java.class.version")), inst.getJavaClassVersion());
+    assertEquals(String.valueOf(basic.get("java.home")), inst.getJavaHome());
+    assertEquals(String.valueOf(basic.get("java.library.path")), inst.getJavaLibraryPath());
+    assertEquals(String.valueOf(basic.get("java.vendor")), inst.getJavaVendor());
+    assertEquals(
+        String.valueOf(basic.get("java.specification.vendor")), inst.getJavaSpecificationVendor());
+    assertEquals(String.valueOf(basic.get("java.vendor.version")), inst.getJavaVendorVersion());
+    assertEquals(String.valueOf(basic.get("java.vm.name")), inst.getJavaVmName());
+    assertEquals(String.valueOf(basic.get("java.vm.vendor")), inst.getJavaVmVendor());
+    assertEquals(String.valueOf(basic.get("jvm.heap.gc.details")), inst.getJvmHeapGcDetails());
+    assertEquals(String.valueOf(basic.get("jvm.pid")), inst.getJvmPid());
+    assertEquals(String.valueOf(basic.get("jvm.packages")), inst.getJvmPackages());
+    assertEquals(String.valueOf(basic.get("system.os.name")), inst.getSystemOsName());
+    assertEquals(String.valueOf(basic.get("system.os.version")), inst.getSystemOsVersion());
+    assertEquals(
+        InsightsMessage.sanitizeJavaParameters(String.valueOf(basic.get("jvm.args"))),
+        inst.getJvmArgs());
+    assertEquals(
+        InsightsMessage.sanitizeJavaParameters(String.valueOf(basic.get("java.command"))),
+        inst.getJavaCommand());
+
+    assertEquals(jarHashesOf(o.get("jars")), inst.getJarHashes());
+    return inst;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Set<JarHash> jarHashesOf(Object jarsRep) {
+    var jars = (List<Map<String, Object>>) ((Map<String, Object>) jarsRep).get("jars");
+    var out = new HashSet<JarHash>();
+    jars.forEach(j -> out.add(Utils.jarHashOf(j)));
+    return out;
+  }
+
+  private static Map<String, Object> readMap(String json) throws IOException {
+    return mapper.readValue(json, new TypeReference<Map<String, Object>>() {});
+  }
+}
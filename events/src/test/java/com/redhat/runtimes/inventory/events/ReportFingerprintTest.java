@@ -0,0 +1,64 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import static com.redhat.runtimes.inventory.events.TestUtils.readFromResources;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.redhat.runtimes.inventory.models.JarHash;
+import com.redhat.runtimes.inventory.models.JvmInstance;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.HashSet;
+import org.junit.jupiter.api.Test;
+
+public class ReportFingerprintTest {
+
+  @Test
+  public void testReportTimeIsIgnored() throws IOException {
+    var json = readFromResources("test17.json");
+    var first = decode(json);
+    var again = decode(json.replace("1685006422892", "1685010022892"));
+    assertEquals(64, ReportFingerprint.of(first).length());
+    assertEquals(ReportFingerprint.of(first), ReportFingerprint.of(again));
+  }
+
+  @Test
+  public void testChangesAreDetected() throws IOException {
+    var json = readFromResources("test17.json");
+    var fingerprint = ReportFingerprint.of(decode(json));
+
+    var heap = decode(json.replace("\"jvm.heap.max\" : 8192", "\"jvm.heap.max\" : 4096"));
+    assertNotEquals(fingerprint, ReportFingerprint.of(heap));
+
+    var jars = decode(json);
+    var moreJars = new HashSet<>(jars.getJarHashes());
+    moreJars.add(new JarHash(null, "added.jar", "", "", "1.0", "", "abc123", ""));
+    jars.setJarHashes(moreJars);
+    assertNotEquals(fingerprint, ReportFingerprint.of(jars));
+
+    var workload = decode(json);
+    workload.setWorkload("Quarkus");
+    assertNotEquals(fingerprint, ReportFingerprint.of(workload));
+  }
+
+  @Test
+  public void testEapSectionIsCovered() throws IOException {
+    var json = readFromResources("eap_example1.json");
+    var fingerprint = ReportFingerprint.of(decode(json));
+    assertEquals(
+        fingerprint, ReportFingerprint.of(decode(json.replace("1689943360504", "1689946960504"))));
+
+    var mode =
+        decode(json.replace("\"running-mode\" : \"NORMAL\"", "\"running-mode\" : \"ADMIN_ONLY\""));
+    assertNotEquals(fingerprint, ReportFingerprint.of(mode));
+
+    var version = decode(json.replace("JBoss EAP 7.4.11.GA", "JBoss EAP 7.4.12.GA"));
+    assertNotEquals(fingerprint, ReportFingerprint.of(version));
+  }
+
+  private static JvmInstance decode(String json) {
+    var announce = new ArchiveAnnouncement();
+    announce.setTimestamp(Instant.now());
+    return (JvmInstance) Utils.instanceOf(announce, json);
+  }
+}
@@ -0,0 +1,66 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import static com.redhat.runtimes.inventory.events.TestUtils.readBytesFromResources;
+import static com.redhat.runtimes.inventory.events.TestUtils.readFromResources;
+import static com.redhat.runtimes.inventory.events.TestUtils.utf8;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import org.junit.jupiter.api.Test;
+
+public class ReportPrefilterTest {
+  // test17.json was reported at 2023-05-25T09:20:22Z
+  private static final Clock SAME_DAY =
+      Clock.fixed(Instant.ofEpochMilli(1685006422892L), ZoneId.of("UTC"));
+  private static final Clock MONTH_LATER =
+      Clock.fixed(Instant.parse("2023-06-25T00:00:00Z"), ZoneId.of("UTC"));
+
+  @Test
+  public void skipsStaleReports() throws IOException {
+    var json = readBytesFromResources("test17.json");
+    assertFalse(ReportPrefilter.skip(json, SAME_DAY, false));
+    assertTrue(ReportPrefilter.skip(json, MONTH_LATER, false));
+    assertTrue(ReportPrefilter.skip(json, MONTH_LATER, true));
+  }
+
+  @Test
+  public void stopsAtTheReportTime() throws IOException {
+    var json = readFromResources("test17.json");
+    // Nothing after the report time is read, so a truncated report is judged all the same
+    var truncated = json.substring(0, json.indexOf("\"jvm.report_time\"") + 40);
+    assertTrue(ReportPrefilter.skip(utf8(truncated), MONTH_LATER, false));
+  }
+
+  @Test
+  public void agreesWithTheDecoderOnGzippedReports() throws IOException {
+    var gzipped = readBytesFromResources("jdk8_MWTELE-66.gz");
+    var announce = new ArchiveAnnouncement();
+    announce.setTimestamp(Instant.now());
+    var msg = ReportDecoder.decodeGzipped(announce, gzipped);
+    for (var clock : new Clock[] {SAME_DAY, MONTH_LATER, Clock.systemUTC()}) {
+      assertEquals(
+          !Utils.shouldProcessMessage(msg, clock, false),
+          ReportPrefilter.skipGzipped(gzipped, clock, false));
+    }
+  }
+
+  @Test
+  public void skipsUpdatesFromEggFilesOnly() throws IOException {
+    var gzipped = readBytesFromResources("update1.json.gz");
+    assertFalse(ReportPrefilter.skipGzipped(gzipped, SAME_DAY, false));
+    assertTrue(ReportPrefilter.skipGzipped(gzipped, SAME_DAY, true));
+  }
+
+  @Test
+  public void leavesUnknownContentToTheDecoder() {
+    assertFalse(ReportPrefilter.skip(utf8("not json"), MONTH_LATER, true));
+    assertFalse(ReportPrefilter.skip(utf8("{\"basic\": {}}"), MONTH_LATER, true));
+    assertFalse(
+        ReportPrefilter.skip(utf8("{\"basic\": {\"jvm.report_time\": \"x\"}}"), MONTH_LATER, true));
+    assertFalse(ReportPrefilter.skip(utf8("[]"), MONTH_LATER, true));
+  }
+}
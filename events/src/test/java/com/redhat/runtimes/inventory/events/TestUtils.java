@@ -1,4 +1,4 @@
-/* Copyright (C) Red Hat 2023 */
+/* Copyright (C) Red Hat 2023-2026 */
 package com.redhat.runtimes.inventory.events;
 
 import static org.awaitility.Awaitility.await;
@@ -6,11 +6,16 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
 import org.awaitility.core.ConditionTimeoutException;
 
 public final class TestUtils {
@@ -19,10 +24,21 @@ public final class TestUtils {
   public static Long lastResult;
 
   public static String readFromResources(String fName) throws IOException {
-    return new String(readBytesFromResources(fName));
+    return new String(readBytesFromResources(fName), StandardCharsets.UTF_8);
+  }
+
+  public static byte[] utf8(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
   }
 
   public static byte[] readBytesFromResources(String fName) throws IOException {
+    // Large fixtures are only checked in gzipped, fall back to those
+    if (ArchiveAnnouncementParserTest.class.getClassLoader().getResource(fName) == null) {
+      try (final InputStream gz = inputStreamFromResources(fName + ".gz");
+          final GZIPInputStream gunzip = new GZIPInputStream(gz)) {
+        return gunzip.readAllBytes();
+      }
+    }
     try (final InputStream is =
             ArchiveAnnouncementParserTest.class.getClassLoader().getResourceAsStream(fName);
         final ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
@@ -42,6 +58,21 @@ public final class TestUtils {
     return ArchiveAnnouncementParserTest.class.getClassLoader().getResourceAsStream(fName);
   }
 
+  /** Gunzips a single report into a String, the way ingress reports were read before. */
+  public static String unzipJson(byte[] buffy) throws IOException {
+    try (var gunzip = new GZIPInputStream(new ByteArrayInputStream(buffy))) {
+      return new String(gunzip.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  /** Reads every report in an egg archive into a String, in archive order. */
+  public static List<String> getJsonsFromArchiveStream(InputStream archiveStream) {
+    List<String> jsonFiles = new ArrayList<>();
+    ArchiveReports.forEach(
+        archiveStream, 0, json -> jsonFiles.add(new String(json, StandardCharsets.UTF_8)));
+    return jsonFiles;
+  }
+
   public static void await_entity_count(EntityManager entityManager, String entity, Long expected) {
     try {
       await_result(
@@ -98,6 +129,7 @@ public final class TestUtils {
     entityManager.createNativeQuery("DELETE FROM eap_instance_module_jar_hash").executeUpdate();
     entityManager.createNativeQuery("DELETE FROM eap_deployment_archive_jar_hash").executeUpdate();
     entityManager.createNativeQuery("DELETE FROM jar_hash").executeUpdate();
+    entityManager.createNativeQuery("DELETE FROM kafka_message").executeUpdate();
     entityManager.createNativeQuery("DELETE FROM jvm_instance").executeUpdate();
     entityManager.createNativeQuery("DELETE FROM eap_deployment").executeUpdate();
     entityManager.createNativeQuery("DELETE FROM eap_configuration_eap_extension").executeUpdate();
@@ -107,5 +139,6 @@ public final class TestUtils {
     entityManager.createNativeQuery("DELETE FROM eap_configuration_subsystems").executeUpdate();
     entityManager.createNativeQuery("DELETE FROM eap_extension").executeUpdate();
     entityManager.createNativeQuery("DELETE FROM eap_extension_subsystems").executeUpdate();
+    entityManager.createNativeQuery("DELETE FROM text_blob").executeUpdate();
   }
 }
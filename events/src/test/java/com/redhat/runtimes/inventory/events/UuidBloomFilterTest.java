@@ -0,0 +1,39 @@
+/* Copyright (C) Red Hat 2026 */
+package com.redhat.runtimes.inventory.events;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+public class UuidBloomFilterTest {
+
+  @Test
+  public void testAddedIdsAreAlwaysFound() {
+    var filter = new UuidBloomFilter(10_000);
+    var added = new ArrayList<UUID>();
+    for (int i = 0; i < 10_000; i++) {
+      var id = UUID.randomUUID();
+      filter.add(id);
+      added.add(id);
+    }
+    added.forEach(id -> assertTrue(filter.mightContain(id)));
+  }
+
+  @Test
+  public void testFalsePositivesStayRare() {
+    var filter = new UuidBloomFilter(10_000);
+    for (int i = 0; i < 10_000; i++) {
+      filter.add(UUID.randomUUID());
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 100_000; i++) {
+      if (filter.mightContain(UUID.randomUUID())) {
+        falsePositives++;
+      }
+    }
+    // Sized for 1%, so 3% leaves plenty of room for chance
+    assertTrue(falsePositives < 3_000, "False positives: " + falsePositives);
+  }
+}
@@ -1,13 +1,12 @@
-/* Copyright (C) Red Hat 2023 */
+/* Copyright (C) Red Hat 2023-2026 */
 package com.redhat.runtimes.inventory.web;
 
 import static com.redhat.runtimes.inventory.models.Constants.X_RH_IDENTITY_HEADER;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.redhat.runtimes.inventory.auth.ConsoleIdentityProvider;
+import com.redhat.runtimes.inventory.json.JsonCodecs;
 import com.redhat.runtimes.inventory.models.EapInstance;
 import com.redhat.runtimes.inventory.models.JarHash;
 import com.redhat.runtimes.inventory.models.JvmInstance;
@@ -35,10 +34,18 @@ import java.util.UUID;
 public class DisplayInventory {
   public static final String PROCESSING_ERROR_COUNTER_NAME = "input.processing.error";
 
+  private static final TypeReference<Map<String, Object>> identityType = new TypeReference<>() {};
+  private static final TypeReference<Map<String, JvmInstance>> jvmResponseType =
+      new TypeReference<>() {};
+  private static final TypeReference<Map<String, EapInstance>> eapResponseType =
+      new TypeReference<>() {};
+
   @Inject MeterRegistry registry;
 
   @Inject EntityManager entityManager;
 
+  @Inject JsonCodecs codecs;
+
   private Counter processingErrorCounter;
 
   @PostConstruct
@@ -129,11 +136,9 @@ public class DisplayInventory {
     } catch (NoResultException e) {
       return "{\"response\": \"[]\"}";
     }
-    ObjectMapper mapper = new ObjectMapper();
-    mapper.registerModule(new JavaTimeModule());
     try {
       Map<String, JvmInstance> map = Map.of("response", result);
-      return mapper.writeValueAsString(map);
+      return codecs.writerFor(jvmResponseType).writeValueAsString(map);
     } catch (JsonProcessingException e) {
       Log.error("JSON Exception", e);
       processingErrorCounter.increment();
@@ -287,16 +292,14 @@ public class DisplayInventory {
     try {
       result = query.getSingleResult();
       if (!Boolean.parseBoolean(includeRaw)) {
-        result.setRaw("");
+        result.omitRaw();
       }
     } catch (NoResultException e) {
       return "{\"response\": \"[]\"}";
     }
-    ObjectMapper mapper = new ObjectMapper();
-    mapper.registerModule(new JavaTimeModule());
     try {
       Map<String, EapInstance> map = Map.of("response", result);
-      return mapper.writeValueAsString(map);
+      return codecs.writerFor(eapResponseType).writeValueAsString(map);
     } catch (JsonProcessingException e) {
       Log.error("JSON Exception", e);
       processingErrorCounter.increment();
@@ -344,7 +347,7 @@ public class DisplayInventory {
     List<EapInstance> results = query.getResultList();
     if (!Boolean.parseBoolean(includeRaw)) {
       for (EapInstance result : results) {
-        result.setRaw("");
+        result.omitRaw();
       }
     }
     return mapResultListToJson(results);
@@ -354,11 +357,10 @@ public class DisplayInventory {
     if (resultList.size() == 0) {
       return "{\"response\": \"[]\"}";
     }
-    ObjectMapper mapper = new ObjectMapper();
-    mapper.registerModule(new JavaTimeModule());
     try {
       Map<String, List<?>> map = Map.of("response", resultList);
-      return mapper.writeValueAsString(map);
+      // The element type is only known at runtime
+      return codecs.writer().writeValueAsString(map);
     } catch (JsonProcessingException e) {
       Log.error("JSON Exception", e);
       processingErrorCounter.increment();
@@ -368,13 +370,10 @@ public class DisplayInventory {
 
   @SuppressWarnings("unchecked")
   static String extractOrgId(String rhIdJson) {
-    TypeReference<Map<String, Object>> typeRef = new TypeReference<>() {};
     String out = "";
 
-    var mapper = new ObjectMapper();
-    mapper.registerModule(new JavaTimeModule());
     try {
-      var o = mapper.readValue(rhIdJson, typeRef);
+      Map<String, Object> o = JsonCodecs.shared().readerFor(identityType).readValue(rhIdJson);
       var identity = (Map<String, Object>) o.get("identity");
       out = String.valueOf(identity.get("org_id"));
     } catch (JsonProcessingException | ClassCastException | NumberFormatException e) {
@@ -1,4 +1,4 @@
-/* Copyright (C) Red Hat 2023 */
+/* Copyright (C) Red Hat 2023-2026 */
 package com.redhat.runtimes.inventory.web;
 
 import static com.redhat.runtimes.inventory.MockServerConfig.RbacAccess.FULL_ACCESS;
@@ -16,12 +16,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.redhat.runtimes.inventory.MockServerConfig;
 import com.redhat.runtimes.inventory.events.ArchiveAnnouncement;
-import com.redhat.runtimes.inventory.events.EventConsumer;
 import com.redhat.runtimes.inventory.events.TestUtils;
 import com.redhat.runtimes.inventory.events.Utils;
+import com.redhat.runtimes.inventory.models.EapExtension;
 import com.redhat.runtimes.inventory.models.EapInstance;
 import com.redhat.runtimes.inventory.models.InsightsMessage;
 import com.redhat.runtimes.inventory.models.JvmInstance;
+import com.redhat.runtimes.inventory.models.TextBlob;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.Header;
@@ -32,6 +33,7 @@ import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.AfterEach;
@@ -87,7 +89,7 @@ public class DisplayInventoryIT {
 
   private JvmInstance getJvmInstanceFromZipJsonFile(String filename) throws IOException {
     byte[] buffy = TestUtils.readBytesFromResources(filename);
-    String json = EventConsumer.unzipJson(buffy);
+    String json = TestUtils.unzipJson(buffy);
     InsightsMessage message = Utils.instanceOf(setupArchiveAnnouncement(), json);
     assertTrue(message instanceof JvmInstance);
     JvmInstance instance = (JvmInstance) message;
@@ -111,7 +113,34 @@ public class DisplayInventoryIT {
   }
 
   @Transactional
-  void persistInstanceToDatabase(Object instance) {
+  void persistInstanceToDatabase(JvmInstance instance) {
+    // Text values are shared between instances, so only the ones not stored yet are persisted
+    instance.swapTextBlobs(
+        blob -> {
+          var row = entityManager.find(TextBlob.class, blob.getHash());
+          if (row == null) {
+            entityManager.persist(blob);
+            row = blob;
+          }
+          return row;
+        });
+    // Extensions are a shared catalog as well
+    if (instance instanceof EapInstance eap
+        && eap.getConfiguration() != null
+        && eap.getConfiguration().getExtensions() != null) {
+      var extensions = new HashSet<EapExtension>();
+      for (var extension : eap.getConfiguration().getExtensions()) {
+        extensions.add(
+            entityManager
+                .createQuery(
+                    "SELECT e FROM EapExtension e WHERE e.contentHash = :hash", EapExtension.class)
+                .setParameter("hash", extension.contentHash())
+                .getResultStream()
+                .findFirst()
+                .orElse(extension));
+      }
+      eap.getConfiguration().setExtensions(extensions);
+    }
     entityManager.persist(instance);
   }
 